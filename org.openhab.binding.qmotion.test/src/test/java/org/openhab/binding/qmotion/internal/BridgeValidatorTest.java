@@ -0,0 +1,120 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BridgeValidator}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class BridgeValidatorTest {
+
+    private static final int BRIDGES = 10;
+
+    private ExecutorService executor;
+    private BridgeValidator validator;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+        validator = new BridgeValidator(executor);
+    }
+
+    @After
+    public void tearDown() {
+        validator.dispose();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void sharedPoolStaysUsableForThingHandlers() {
+        new BridgeValidator().dispose();
+
+        // Thing handlers get their scheduler from this pool, asking for it must still work
+        assertNotNull(ThreadPoolManager.getScheduledPool("thingHandler"));
+    }
+
+    @Test
+    public void limitsConcurrentValidations() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(BRIDGES);
+
+        for (int i = 0; i < BRIDGES; i++) {
+            validator.validate(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                done.countDown();
+                return true;
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue("Ran " + maxRunning.get() + " validations at once", maxRunning.get() <= 4);
+    }
+
+    @Test
+    public void failingValidationDoesNotBlockOthers() throws Exception {
+        CountDownLatch done = new CountDownLatch(BRIDGES);
+
+        for (int i = 0; i < BRIDGES; i++) {
+            validator.validate(() -> {
+                done.countDown();
+                throw new IllegalStateException("Validation failed");
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void disposeDropsQueuedValidations() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+
+        for (int i = 0; i < BRIDGES; i++) {
+            validator.validate(() -> {
+                started.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            });
+        }
+        validator.dispose();
+        release.countDown();
+        Thread.sleep(100);
+
+        assertEquals(4, started.get());
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.qmotion.internal.CommandCapture.CapturedCommand;
+import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
+
+/**
+ * Tests for {@link CommandCapture}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class CommandCaptureTest {
+
+    private static final ThingUID BRIDGE_UID = new ThingUID("qmotion:qsync:living");
+
+    private Path directory;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("qmotion-capture");
+        file = directory.resolve("commands.qmc");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+    }
+
+    @Test
+    public void recordedCommandsAreReadBack() throws IOException {
+        try (CommandCapture capture = new CommandCapture(file, BRIDGE_UID)) {
+            capture.record(new ShadeCommand(9, ShadePosition.POSITION_0));
+            capture.record(new ShadeCommand(10, ShadePosition.POSITION_100));
+        }
+
+        List<CapturedCommand> commands = CommandCapture.read(file);
+        assertEquals(2, commands.size());
+        assertEquals(9, commands.get(0).getCommand().getGroupId());
+        assertEquals(ShadePosition.POSITION_0, commands.get(0).getCommand().getPosition());
+        assertEquals(10, commands.get(1).getCommand().getGroupId());
+        assertEquals(ShadePosition.POSITION_100, commands.get(1).getCommand().getPosition());
+        assertTrue(commands.get(0).getTimestamp() <= commands.get(1).getTimestamp());
+        assertEquals(BRIDGE_UID, commands.get(0).getBridgeUID());
+    }
+
+    @Test
+    public void recordingAppendsToExistingCapture() throws IOException {
+        try (CommandCapture capture = new CommandCapture(file, BRIDGE_UID)) {
+            capture.record(new ShadeCommand(9, ShadePosition.POSITION_0));
+        }
+        try (CommandCapture capture = new CommandCapture(file, BRIDGE_UID)) {
+            capture.record(new ShadeCommand(10, ShadePosition.POSITION_100));
+        }
+
+        assertEquals(2, CommandCapture.read(file).size());
+    }
+
+    @Test
+    public void emptyFileBecomesCapture() throws IOException {
+        Files.createFile(file);
+
+        try (CommandCapture capture = new CommandCapture(file, BRIDGE_UID)) {
+            capture.record(new ShadeCommand(9, ShadePosition.POSITION_0));
+        }
+
+        assertEquals(1, CommandCapture.read(file).size());
+    }
+
+    @Test
+    public void otherFileIsLeftUntouched() throws IOException {
+        byte[] content = "not a capture".getBytes(StandardCharsets.US_ASCII);
+        Files.write(file, content);
+
+        try {
+            new CommandCapture(file, BRIDGE_UID).close();
+            fail("Recorded into a file that is not a capture");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        assertArrayEquals(content, Files.readAllBytes(file));
+    }
+
+    @Test
+    public void captureCannotBeRecordedIntoTwice() throws IOException {
+        try (CommandCapture capture = new CommandCapture(file, BRIDGE_UID)) {
+            try {
+                new CommandCapture(file, BRIDGE_UID).close();
+                fail("Recorded into a capture that is already being recorded into");
+            } catch (IOException e) {
+                // Expected
+            }
+            capture.record(new ShadeCommand(9, ShadePosition.POSITION_0));
+        }
+
+        assertEquals(1, CommandCapture.read(file).size());
+    }
+
+    @Test
+    public void captureOfOtherBridgeIsNotAppendedTo() throws IOException {
+        try (CommandCapture capture = new CommandCapture(file, BRIDGE_UID)) {
+            capture.record(new ShadeCommand(9, ShadePosition.POSITION_0));
+        }
+
+        try {
+            new CommandCapture(file, new ThingUID("qmotion:qsync:kitchen")).close();
+            fail("Recorded into the capture of another bridge");
+        } catch (IOException e) {
+            // Expected
+        }
+
+        List<CapturedCommand> commands = CommandCapture.read(file);
+        assertEquals(1, commands.size());
+        assertEquals(BRIDGE_UID, commands.get(0).getBridgeUID());
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openhab.binding.qmotion.internal.CommandCapture.CapturedCommand;
+import org.openhab.binding.qmotion.internal.protocol.QsyncControllerStandIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link CommandReplay} submits the commands of one or more
+ * {@link CommandCapture}s to a {@link ShadeCommandDispatcher} again, each to
+ * the bridge it was captured for, and logs how long the commands took. The
+ * bridges are typically configured against {@link QsyncControllerStandIn}s.
+ *
+ * Commands are submitted the way shade groups issue them, without waiting for
+ * earlier commands to be sent, so batching and queueing in the dispatcher and
+ * the controllers shows up in the latencies. At original speed every command
+ * is submitted at the same offset from the start as it was captured, being
+ * late for that shows up as queueing delay of the replay itself. Otherwise the
+ * commands are submitted all at once.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class CommandReplay {
+
+    private final Logger logger = LoggerFactory.getLogger(CommandReplay.class);
+
+    private final List<CapturedCommand> commands = new ArrayList<>();
+
+    /**
+     * @param captureFiles captures to replay, their commands are merged by time
+     * @throws IOException if a capture cannot be read
+     */
+    public CommandReplay(Path... captureFiles) throws IOException {
+        for (Path captureFile : captureFiles) {
+            commands.addAll(CommandCapture.read(captureFile));
+        }
+        // Stable, so commands captured in the same millisecond keep their order
+        commands.sort(Comparator.comparingLong(CapturedCommand::getTimestamp));
+    }
+
+    /**
+     * Submit all captured commands and wait until they were sent.
+     *
+     * @param dispatcher    to submit the commands to, knowing the captured bridges
+     * @param originalSpeed true to keep the captured spacing, false to submit all at once
+     * @throws InterruptedException if interrupted while waiting for the next command to be due or to be sent
+     */
+    public void replay(ShadeCommandDispatcher dispatcher, boolean originalSpeed) throws InterruptedException {
+        if (commands.isEmpty()) {
+            logger.info("Nothing to replay, the capture is empty");
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        long firstTimestamp = commands.get(0).getTimestamp();
+
+        int count = commands.size();
+        long[] latencyNanos = new long[count];
+        AtomicInteger failed = new AtomicInteger();
+        long totalQueueNanos = 0;
+        long maxQueueNanos = 0;
+
+        List<CompletableFuture<Void>> sent = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            CapturedCommand captured = commands.get(i);
+            if (originalSpeed) {
+                long dueNanos = startNanos
+                        + TimeUnit.MILLISECONDS.toNanos(captured.getTimestamp() - firstTimestamp);
+                long waitNanos = dueNanos - System.nanoTime();
+                if (waitNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } else {
+                    totalQueueNanos -= waitNanos;
+                    maxQueueNanos = Math.max(maxQueueNanos, -waitNanos);
+                }
+            }
+
+            int index = i;
+            long submitNanos = System.nanoTime();
+            sent.add(dispatcher.submit(captured.getBridgeUID(), captured.getCommand()).whenComplete((result, e) -> {
+                latencyNanos[index] = System.nanoTime() - submitNanos;
+                if (e != null) {
+                    logger.debug("Replayed command {} to {} failed", captured.getCommand(),
+                            captured.getBridgeUID(), e);
+                    failed.incrementAndGet();
+                }
+            }));
+        }
+
+        try {
+            CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[count])).get();
+        } catch (ExecutionException e) {
+            // Counted as failed above
+        }
+
+        long totalLatencyNanos = 0;
+        long maxLatencyNanos = 0;
+        for (long latency : latencyNanos) {
+            totalLatencyNanos += latency;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        }
+
+        logger.info("Replayed {} command(s) in {} ms, {} failed", count,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), failed.get());
+        logger.info("Replay latency avg {} ms, max {} ms; queueing avg {} ms, max {} ms",
+                TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos / count),
+                TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos),
+                TimeUnit.NANOSECONDS.toMillis(totalQueueNanos / count), TimeUnit.NANOSECONDS.toMillis(maxQueueNanos));
+    }
+
+    /**
+     * @return the captured commands to replay, oldest first
+     */
+    public List<CapturedCommand> getCommands() {
+        return commands;
+    }
+}
@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.qmotion.internal.CommandCapture.CapturedCommand;
+import org.openhab.binding.qmotion.internal.protocol.QsyncControllerStandIn;
+import org.openhab.binding.qmotion.internal.protocol.QsyncHandlerFixture;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerRegistry;
+import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
+
+/**
+ * Captures commands submitted to a {@link ShadeCommandDispatcher} and replays
+ * them with {@link CommandReplay}, both against {@link QsyncControllerStandIn}s.
+ *
+ * {@link #replayGivenCapture()} replays real captures when the system property
+ * qmotion.replay.file is set to their paths, separated like a class path. It is
+ * skipped otherwise.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class CommandReplayTest {
+
+    private static final String REPLAY_FILE = System.getProperty("qmotion.replay.file");
+
+    private Path directory;
+    private RemoteControllerRegistry controllers;
+    private BridgeValidator validator;
+    private ScheduledExecutorService scheduler;
+    private ShadeCommandDispatcher dispatcher;
+    private final List<QsyncHandler> handlers = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("qmotion-replay");
+        controllers = new RemoteControllerRegistry(0);
+        validator = new BridgeValidator();
+        scheduler = Executors.newScheduledThreadPool(2);
+        dispatcher = new ShadeCommandDispatcher(scheduler);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        dispatcher.dispose();
+        for (QsyncHandler handler : handlers) {
+            handler.dispose();
+        }
+        controllers.dispose();
+        validator.dispose();
+        scheduler.shutdownNow();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void replaySendsCapturedCommands() throws Exception {
+        Path file = directory.resolve("commands.qmc");
+
+        List<byte[]> captured;
+        try (QsyncControllerStandIn standIn = new QsyncControllerStandIn()) {
+            QsyncHandler handler = addBridge("living", standIn, file);
+            submitAll(new ThingUID("qmotion:qsync:living"), new ShadeCommand(9, ShadePosition.POSITION_0),
+                    new ShadeCommand(10, ShadePosition.POSITION_50), new ShadeCommand(9, ShadePosition.POSITION_100));
+            removeBridge(handler);
+            captured = standIn.getCommands();
+        }
+
+        try (QsyncControllerStandIn standIn = new QsyncControllerStandIn()) {
+            addBridge("living", standIn, null);
+            new CommandReplay(file).replay(dispatcher, true);
+
+            assertCommandsEqual(captured, standIn.getCommands());
+        }
+    }
+
+    @Test
+    public void replaySendsToTheCapturedBridges() throws Exception {
+        Path livingFile = directory.resolve("living.qmc");
+        Path kitchenFile = directory.resolve("kitchen.qmc");
+        ThingUID living = new ThingUID("qmotion:qsync:living");
+        ThingUID kitchen = new ThingUID("qmotion:qsync:kitchen");
+
+        List<byte[]> livingCaptured;
+        List<byte[]> kitchenCaptured;
+        try (QsyncControllerStandIn livingStandIn = new QsyncControllerStandIn();
+                QsyncControllerStandIn kitchenStandIn = new QsyncControllerStandIn()) {
+            QsyncHandler livingHandler = addBridge("living", livingStandIn, livingFile);
+            QsyncHandler kitchenHandler = addBridge("kitchen", kitchenStandIn, kitchenFile);
+            submitAll(living, new ShadeCommand(9, ShadePosition.POSITION_0));
+            submitAll(kitchen, new ShadeCommand(3, ShadePosition.POSITION_100));
+            submitAll(living, new ShadeCommand(10, ShadePosition.POSITION_50));
+            removeBridge(livingHandler);
+            removeBridge(kitchenHandler);
+            livingCaptured = livingStandIn.getCommands();
+            kitchenCaptured = kitchenStandIn.getCommands();
+        }
+
+        assertEquals(living, CommandCapture.read(livingFile).get(0).getBridgeUID());
+        assertEquals(kitchen, CommandCapture.read(kitchenFile).get(0).getBridgeUID());
+
+        try (QsyncControllerStandIn livingStandIn = new QsyncControllerStandIn();
+                QsyncControllerStandIn kitchenStandIn = new QsyncControllerStandIn()) {
+            addBridge("living", livingStandIn, null);
+            addBridge("kitchen", kitchenStandIn, null);
+            new CommandReplay(livingFile, kitchenFile).replay(dispatcher, false);
+
+            assertCommandsEqual(livingCaptured, livingStandIn.getCommands());
+            assertCommandsEqual(kitchenCaptured, kitchenStandIn.getCommands());
+        }
+    }
+
+    @Test
+    public void secondBridgeDoesNotRecordIntoSameCapture() throws Exception {
+        Path file = directory.resolve("commands.qmc");
+
+        try (QsyncControllerStandIn standIn = new QsyncControllerStandIn()) {
+            QsyncHandler first = addBridge("first", standIn, file);
+            QsyncHandler second = addBridge("second", standIn, file);
+            submitAll(new ThingUID("qmotion:qsync:first"), new ShadeCommand(9, ShadePosition.POSITION_0));
+            submitAll(new ThingUID("qmotion:qsync:second"), new ShadeCommand(10, ShadePosition.POSITION_100));
+            removeBridge(second);
+            removeBridge(first);
+        }
+
+        List<CapturedCommand> commands = CommandCapture.read(file);
+        assertEquals(1, commands.size());
+        assertEquals(9, commands.get(0).getCommand().getGroupId());
+        assertEquals(new ThingUID("qmotion:qsync:first"), commands.get(0).getBridgeUID());
+    }
+
+    @Test
+    public void replayGivenCapture() throws Exception {
+        assumeTrue("No capture given in qmotion.replay.file", REPLAY_FILE != null);
+
+        List<Path> files = new ArrayList<>();
+        for (String file : REPLAY_FILE.split(File.pathSeparator)) {
+            files.add(Paths.get(file));
+        }
+        CommandReplay replay = new CommandReplay(files.toArray(new Path[files.size()]));
+
+        Set<ThingUID> bridgeUIDs = new LinkedHashSet<>();
+        for (CapturedCommand command : replay.getCommands()) {
+            bridgeUIDs.add(command.getBridgeUID());
+        }
+
+        List<QsyncControllerStandIn> standIns = new ArrayList<>();
+        try {
+            for (ThingUID bridgeUID : bridgeUIDs) {
+                QsyncControllerStandIn standIn = new QsyncControllerStandIn();
+                standIns.add(standIn);
+                addBridge(bridgeUID.getId(), standIn, null);
+            }
+            replay.replay(dispatcher, true);
+        } finally {
+            for (QsyncControllerStandIn standIn : standIns) {
+                standIn.close();
+            }
+        }
+    }
+
+    private QsyncHandler addBridge(String id, QsyncControllerStandIn standIn, Path captureFile) {
+        Map<String, Object> configuration = QsyncHandlerFixture.configuration(standIn);
+        if (captureFile != null) {
+            configuration.put("captureFile", captureFile.toString());
+        }
+        QsyncHandler handler = QsyncHandlerFixture.create(id, configuration, validator, controllers);
+        handlers.add(handler);
+        dispatcher.addBridge(handler);
+        return handler;
+    }
+
+    private void removeBridge(QsyncHandler handler) {
+        dispatcher.removeBridge(handler);
+        handler.dispose();
+        handlers.remove(handler);
+    }
+
+    private void submitAll(ThingUID bridgeUID, ShadeCommand... commands) throws Exception {
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+        for (ShadeCommand command : commands) {
+            sent.add(dispatcher.submit(bridgeUID, command));
+        }
+        for (CompletableFuture<Void> future : sent) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static void assertCommandsEqual(List<byte[]> expected, List<byte[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
@@ -0,0 +1,259 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.qmotion.internal.protocol.QsyncControllerStandIn;
+import org.openhab.binding.qmotion.internal.protocol.QsyncHandlerFixture;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerException;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerRegistry;
+import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Soak test of the send path. Drives sustained command load through a
+ * {@link QsyncHandler} against a {@link QsyncControllerStandIn} while dropping
+ * connections and interrupting senders at random, then checks that file
+ * descriptors, threads and heap did not grow and that the stand-in has no
+ * connection left open. Throughput and latency are logged per window of the
+ * run to show trends.
+ *
+ * The test only runs when the system property qmotion.soak.commands is set to
+ * the number of commands to send, as it takes a while and depends on timing
+ * and garbage collection. Every command opens and closes a connection, as it
+ * would with a real controller, but without the pause of 300 ms between frames.
+ * A run of 100000 commands takes under a minute and goes through as many
+ * connections as about 17 hours of sending back to back to a real controller.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class QsyncHandlerSoakTest {
+
+    private static final int COMMANDS = Integer.getInteger("qmotion.soak.commands", 0);
+    private static final int SENDERS = 4;
+    private static final int WINDOWS = 10;
+
+    // Chance per command of the stand-in dropping all connections
+    private static final double DISCONNECT_RATE = 0.02;
+    // Pause between two interrupts of a random sender
+    private static final long INTERRUPT_INTERVAL_MS = 20;
+
+    // Growth allowed between the end of the warm up and the end of the run
+    private static final long FD_TOLERANCE = 8;
+    private static final int THREAD_TOLERANCE = 8;
+    private static final long HEAP_TOLERANCE = 16 * 1024 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(QsyncHandlerSoakTest.class);
+
+    private QsyncControllerStandIn standIn;
+    private RemoteControllerRegistry controllers;
+    private BridgeValidator validator;
+    private QsyncHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = new QsyncControllerStandIn();
+        controllers = new RemoteControllerRegistry(0);
+        validator = new BridgeValidator();
+
+        Map<String, Object> configuration = QsyncHandlerFixture.configuration(standIn);
+        configuration.put("ackTimeout", 50);
+        handler = QsyncHandlerFixture.create("soak", configuration, validator, controllers);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handler.dispose();
+        controllers.dispose();
+        validator.dispose();
+        standIn.close();
+    }
+
+    @Test
+    public void sustainedLoadDoesNotLeak() throws Exception {
+        assumeTrue("Soak test not requested", COMMANDS > 0);
+
+        // Warm up thread pools and class loading before taking the baseline
+        runLoad(Math.max(COMMANDS / 10, 100));
+        settle();
+        long fdsBefore = openFileDescriptors();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapBefore = usedHeap();
+
+        List<Window> windows = runLoad(COMMANDS);
+        settle();
+        long fdsAfter = openFileDescriptors();
+        int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapAfter = usedHeap();
+
+        int sent = 0;
+        for (int i = 0; i < windows.size(); i++) {
+            Window window = windows.get(i);
+            sent += window.succeeded;
+            logger.info("Soak window {}: {} sent, {} failed, {} commands/s, latency avg {} ms, max {} ms", i,
+                    window.succeeded, window.failed, window.throughput(), window.averageLatencyMs(),
+                    TimeUnit.NANOSECONDS.toMillis(window.maxLatencyNanos));
+        }
+        logger.info("Soak resources: fds {} -> {}, threads {} -> {}, heap {} -> {} bytes", fdsBefore, fdsAfter,
+                threadsBefore, threadsAfter, heapBefore, heapAfter);
+
+        assertTrue("No command got through", sent > 0);
+        assertEquals("Connections left open", 0, standIn.getOpenConnectionCount());
+        if (fdsBefore >= 0) {
+            assertTrue("File descriptors grew from " + fdsBefore + " to " + fdsAfter,
+                    fdsAfter <= fdsBefore + FD_TOLERANCE);
+        }
+        assertTrue("Threads grew from " + threadsBefore + " to " + threadsAfter,
+                threadsAfter <= threadsBefore + THREAD_TOLERANCE);
+        assertTrue("Heap grew from " + heapBefore + " to " + heapAfter, heapAfter <= heapBefore + HEAP_TOLERANCE);
+    }
+
+    private List<Window> runLoad(int commands) throws Exception {
+        List<Window> windows = new ArrayList<>();
+        for (int i = 0; i < WINDOWS; i++) {
+            windows.add(new Window());
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService senders = Executors.newFixedThreadPool(SENDERS);
+        List<Future<?>> futures = new ArrayList<>();
+        List<Thread> senderThreads = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            futures.add(senders.submit(() -> {
+                synchronized (senderThreads) {
+                    senderThreads.add(Thread.currentThread());
+                }
+                send(commands, next, windows);
+            }));
+        }
+
+        // Interrupt random senders until all commands are sent
+        while (next.get() < commands) {
+            Thread.sleep(INTERRUPT_INTERVAL_MS);
+            synchronized (senderThreads) {
+                if (!senderThreads.isEmpty()) {
+                    senderThreads.get(ThreadLocalRandom.current().nextInt(senderThreads.size())).interrupt();
+                }
+            }
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        senders.shutdownNow();
+        assertTrue(senders.awaitTermination(10, TimeUnit.SECONDS));
+
+        return windows;
+    }
+
+    private void send(int commands, AtomicInteger next, List<Window> windows) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int sequence;
+        while ((sequence = next.getAndIncrement()) < commands) {
+            Window window = windows.get(sequence * WINDOWS / commands);
+
+            if (random.nextDouble() < DISCONNECT_RATE) {
+                standIn.disconnectAll();
+            }
+
+            ShadeCommand command = new ShadeCommand(random.nextInt(1, 32),
+                    ShadePosition.values()[random.nextInt(ShadePosition.values().length)]);
+            long start = System.nanoTime();
+            try {
+                handler.sendCommand(command);
+                window.succeeded(start, System.nanoTime());
+            } catch (RemoteControllerException e) {
+                window.failed(start, System.nanoTime());
+            }
+
+            // An interrupt only ever aborts the command it hit
+            Thread.interrupted();
+        }
+    }
+
+    private void settle() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (standIn.getOpenConnectionCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static long openFileDescriptors() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.UnixOperatingSystemMXBean) {
+            return ((com.sun.management.UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount();
+        }
+        return -1;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static class Window {
+        private long startNanos = Long.MAX_VALUE;
+        private long endNanos;
+        private int succeeded;
+        private int failed;
+        private long totalLatencyNanos;
+        private long maxLatencyNanos;
+
+        synchronized void succeeded(long sendNanos, long doneNanos) {
+            succeeded++;
+            totalLatencyNanos += doneNanos - sendNanos;
+            maxLatencyNanos = Math.max(maxLatencyNanos, doneNanos - sendNanos);
+            span(sendNanos, doneNanos);
+        }
+
+        synchronized void failed(long sendNanos, long doneNanos) {
+            failed++;
+            span(sendNanos, doneNanos);
+        }
+
+        private void span(long sendNanos, long doneNanos) {
+            startNanos = Math.min(startNanos, sendNanos);
+            endNanos = Math.max(endNanos, doneNanos);
+        }
+
+        synchronized long throughput() {
+            long elapsedNanos = Math.max(endNanos - startNanos, 1);
+            return (succeeded + failed) * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        }
+
+        synchronized long averageLatencyMs() {
+            return succeeded == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos / succeeded);
+        }
+    }
+}
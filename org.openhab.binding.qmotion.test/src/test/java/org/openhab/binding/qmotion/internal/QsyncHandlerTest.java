@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.qmotion.internal.protocol.QsyncControllerStandIn;
+import org.openhab.binding.qmotion.internal.protocol.QsyncHandlerFixture;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerException;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerRegistry;
+import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
+
+/**
+ * Tests for {@link QsyncHandler} against a {@link QsyncControllerStandIn}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class QsyncHandlerTest {
+
+    private QsyncControllerStandIn standIn;
+    private RemoteControllerRegistry controllers;
+    private BridgeValidator validator;
+    private QsyncHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = new QsyncControllerStandIn();
+        controllers = new RemoteControllerRegistry(0);
+        validator = new BridgeValidator();
+
+        Map<String, Object> configuration = QsyncHandlerFixture.configuration(standIn);
+        configuration.put("ackTimeout", 100);
+        handler = QsyncHandlerFixture.create("handler", configuration, validator, controllers);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        handler.dispose();
+        controllers.dispose();
+        validator.dispose();
+        standIn.close();
+    }
+
+    @Test
+    public void probesStartWithoutValidation() throws Exception {
+        BridgeValidator disposedValidator = new BridgeValidator();
+        disposedValidator.dispose();
+        Map<String, Object> configuration = QsyncHandlerFixture.configuration(standIn);
+        configuration.put("probeInterval", 1);
+        int connections = standIn.getConnectionCount();
+
+        QsyncHandler probed = QsyncHandlerFixture.create("probed", configuration, disposedValidator, controllers);
+        try {
+            // The first probe is due within one interval
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+            while (standIn.getConnectionCount() == connections && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue("Bridge was never probed", standIn.getConnectionCount() > connections);
+        } finally {
+            probed.dispose();
+        }
+    }
+
+    @Test
+    public void acknowledgedCommandSucceeds() throws Exception {
+        handler.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50));
+
+        assertEquals(1, standIn.getCommands().size());
+    }
+
+    @Test
+    public void unacknowledgedCommandFails() throws Exception {
+        standIn.setReplier(payload -> null);
+
+        try {
+            handler.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50));
+            fail("Command without acknowledgement succeeded");
+        } catch (RemoteControllerException e) {
+            assertEquals(1, standIn.getCommands().size());
+        }
+    }
+}
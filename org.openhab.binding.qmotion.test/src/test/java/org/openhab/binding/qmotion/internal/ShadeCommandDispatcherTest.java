@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.qmotion.internal.protocol.QsyncControllerStandIn;
+import org.openhab.binding.qmotion.internal.protocol.QsyncHandlerFixture;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerException;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerRegistry;
+import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
+
+/**
+ * Tests for {@link ShadeCommandDispatcher} sending through a {@link QsyncHandler}
+ * to a {@link QsyncControllerStandIn}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class ShadeCommandDispatcherTest {
+
+    private static final ThingUID BRIDGE_UID = new ThingUID("qmotion:qsync:dispatcher");
+
+    // More than the threads a bounded pool would have
+    private static final int PARALLEL_BRIDGES = 6;
+
+    private QsyncControllerStandIn standIn;
+    private RemoteControllerRegistry controllers;
+    private BridgeValidator validator;
+    private ScheduledExecutorService scheduler;
+    private ShadeCommandDispatcher dispatcher;
+    private QsyncHandler handler;
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = new QsyncControllerStandIn();
+        controllers = new RemoteControllerRegistry(0);
+        validator = new BridgeValidator();
+        scheduler = Executors.newScheduledThreadPool(2);
+        dispatcher = new ShadeCommandDispatcher(scheduler);
+
+        Map<String, Object> configuration = QsyncHandlerFixture.configuration(standIn);
+        configuration.put("ackTimeout", 1000);
+        handler = QsyncHandlerFixture.create("dispatcher", configuration, validator, controllers);
+        dispatcher.addBridge(handler);
+
+        // Let the probe done on initialization finish, so it is not counted as a connection for commands
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (standIn.getConnectionCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        dispatcher.dispose();
+        handler.dispose();
+        controllers.dispose();
+        validator.dispose();
+        scheduler.shutdownNow();
+        standIn.close();
+    }
+
+    @Test
+    public void commandsSubmittedTogetherShareAConnection() throws Exception {
+        int connections = standIn.getConnectionCount();
+
+        CompletableFuture<Void> first = dispatcher.submit(BRIDGE_UID, new ShadeCommand(9, ShadePosition.POSITION_0));
+        CompletableFuture<Void> second = dispatcher.submit(BRIDGE_UID,
+                new ShadeCommand(10, ShadePosition.POSITION_100));
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+
+        assertEquals(connections + 1, standIn.getConnectionCount());
+        assertEquals(2, standIn.getCommands().size());
+    }
+
+    @Test
+    public void bridgesAreSentToInParallel() throws Exception {
+        // Paced like a real controller, more bridges than the scheduler has threads
+        RemoteControllerRegistry pacedControllers = new RemoteControllerRegistry(100);
+        ScheduledExecutorService timer = Executors.newScheduledThreadPool(1);
+        ShadeCommandDispatcher parallelDispatcher = new ShadeCommandDispatcher(timer);
+        List<QsyncControllerStandIn> standIns = new ArrayList<>();
+        List<QsyncHandler> bridges = new ArrayList<>();
+        try {
+            for (int i = 0; i < PARALLEL_BRIDGES; i++) {
+                QsyncControllerStandIn bridgeStandIn = new QsyncControllerStandIn();
+                standIns.add(bridgeStandIn);
+                QsyncHandler bridge = QsyncHandlerFixture.create("parallel" + i,
+                        QsyncHandlerFixture.configuration(bridgeStandIn), validator, pacedControllers);
+                bridges.add(bridge);
+                parallelDispatcher.addBridge(bridge);
+            }
+
+            long singleNanos = timeSubmit(parallelDispatcher, bridges.subList(0, 1));
+            long allNanos = timeSubmit(parallelDispatcher, bridges);
+
+            assertTrue("Sending to " + PARALLEL_BRIDGES + " bridges took " + TimeUnit.NANOSECONDS.toMillis(allNanos)
+                    + " ms, to one " + TimeUnit.NANOSECONDS.toMillis(singleNanos) + " ms",
+                    allNanos < 2 * singleNanos);
+            // The first bridge got a command from both rounds
+            assertEquals(2, standIns.get(0).getCommands().size());
+            for (QsyncControllerStandIn bridgeStandIn : standIns.subList(1, standIns.size())) {
+                assertEquals(1, bridgeStandIn.getCommands().size());
+            }
+        } finally {
+            parallelDispatcher.dispose();
+            for (QsyncHandler bridge : bridges) {
+                bridge.dispose();
+            }
+            for (QsyncControllerStandIn bridgeStandIn : standIns) {
+                bridgeStandIn.close();
+            }
+            pacedControllers.dispose();
+            timer.shutdownNow();
+        }
+    }
+
+    private long timeSubmit(ShadeCommandDispatcher dispatcher, List<QsyncHandler> bridges) throws Exception {
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> sent = new ArrayList<>();
+        for (QsyncHandler bridge : bridges) {
+            sent.add(dispatcher.submit(bridge.getThing().getUID(), new ShadeCommand(9, ShadePosition.POSITION_50)));
+        }
+        for (CompletableFuture<Void> future : sent) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void commandForUnknownBridgeFails() throws Exception {
+        CompletableFuture<Void> sent = dispatcher.submit(new ThingUID("qmotion:qsync:unknown"),
+                new ShadeCommand(9, ShadePosition.POSITION_0));
+
+        try {
+            sent.get(5, TimeUnit.SECONDS);
+            fail("Command for an unknown bridge was sent");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RemoteControllerException);
+        }
+    }
+
+    @Test
+    public void disposeFailsCommandsNotSentYet() throws Exception {
+        CompletableFuture<Void> sent = dispatcher.submit(BRIDGE_UID, new ShadeCommand(9, ShadePosition.POSITION_0));
+        dispatcher.dispose();
+
+        assertTrue(sent.isCompletedExceptionally());
+        Thread.sleep(200);
+        assertTrue(standIn.getCommands().isEmpty());
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A QsyncController stand-in listening on the loopback interface. It decodes
+ * the frames it receives, records the command frames and can answer each frame
+ * through a configurable replier. By default command frames are echoed back.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class QsyncControllerStandIn implements Closeable {
+
+    // Payload length of a command frame, header frames are shorter
+    private static final int COMMAND_PAYLOAD_LENGTH = 5;
+
+    private final ServerSocket server;
+    private final ExecutorService connections = Executors.newCachedThreadPool();
+    private final List<Socket> sockets = new ArrayList<>();
+    private final List<byte[]> commands = new ArrayList<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger frameCount = new AtomicInteger();
+
+    private volatile Function<byte[], byte[]> replier = QsyncControllerStandIn::echoCommands;
+
+    public QsyncControllerStandIn() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        connections.execute(this::accept);
+    }
+
+    public String getHost() {
+        return server.getInetAddress().getHostAddress();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @param replier gets the payload of every received frame and returns the payload to answer with, or null
+     */
+    public void setReplier(Function<byte[], byte[]> replier) {
+        this.replier = replier;
+    }
+
+    /**
+     * @return payloads of all command frames received so far, in order
+     */
+    public List<byte[]> getCommands() {
+        synchronized (commands) {
+            return new ArrayList<>(commands);
+        }
+    }
+
+    /**
+     * @return number of header and command frames received so far
+     */
+    public int getFrameCount() {
+        return frameCount.get();
+    }
+
+    /**
+     * @return number of connections accepted so far
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * @return number of connections currently open
+     */
+    public int getOpenConnectionCount() {
+        synchronized (sockets) {
+            return sockets.size();
+        }
+    }
+
+    /**
+     * Drop all open connections, as a controller restart would.
+     */
+    public void disconnectAll() {
+        synchronized (sockets) {
+            for (Socket socket : sockets) {
+                closeQuietly(socket);
+            }
+            sockets.clear();
+        }
+    }
+
+    public static byte[] echoCommands(byte[] payload) {
+        return payload.length == COMMAND_PAYLOAD_LENGTH ? payload : null;
+    }
+
+    private void accept() {
+        try {
+            while (true) {
+                Socket socket = server.accept();
+                connectionCount.incrementAndGet();
+                synchronized (sockets) {
+                    sockets.add(socket);
+                }
+                connections.execute(() -> serve(socket));
+            }
+        } catch (IOException e) {
+            // Server socket closed
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (Socket s = socket) {
+            InputStream is = s.getInputStream();
+            OutputStream os = s.getOutputStream();
+            ReplyFrameDecoder decoder = new ReplyFrameDecoder((payload, length) -> {
+                byte[] frame = Arrays.copyOf(payload, length);
+                frameCount.incrementAndGet();
+                if (length == COMMAND_PAYLOAD_LENGTH) {
+                    synchronized (commands) {
+                        commands.add(frame);
+                    }
+                }
+                byte[] reply = replier.apply(frame);
+                if (reply != null) {
+                    try {
+                        os.write(0x1b);
+                        os.write(reply.length);
+                        os.write(reply);
+                        os.flush();
+                    } catch (IOException e) {
+                        closeQuietly(s);
+                    }
+                }
+            });
+
+            byte[] buffer = new byte[64];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                decoder.decode(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // Connection dropped
+        } finally {
+            synchronized (sockets) {
+                sockets.remove(socket);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        disconnectAll();
+        connections.shutdownNow();
+    }
+}
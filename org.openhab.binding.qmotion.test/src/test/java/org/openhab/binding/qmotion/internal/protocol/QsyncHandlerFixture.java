@@ -0,0 +1,68 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.config.core.Configuration;
+import org.eclipse.smarthome.core.thing.Bridge;
+import org.eclipse.smarthome.core.thing.ThingStatus;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerCallback;
+import org.openhab.binding.qmotion.internal.BridgeValidator;
+import org.openhab.binding.qmotion.internal.QsyncHandler;
+
+/**
+ * Creates {@link QsyncHandler}s for a mocked Qsync bridge pointed at a
+ * {@link QsyncControllerStandIn}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class QsyncHandlerFixture {
+
+    private QsyncHandlerFixture() {
+    }
+
+    /**
+     * @return bridge configuration for the stand-in, without periodic probes
+     */
+    public static Map<String, Object> configuration(QsyncControllerStandIn standIn) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("ipAddress", standIn.getHost());
+        properties.put("port", standIn.getPort());
+        properties.put("probeInterval", 0);
+        return properties;
+    }
+
+    /**
+     * Create and initialize a handler for the bridge qmotion:qsync:&lt;id&gt;.
+     *
+     * @param id            id of the bridge
+     * @param configuration configuration of the bridge, see {@link #configuration(QsyncControllerStandIn)}
+     */
+    public static QsyncHandler create(String id, Map<String, Object> configuration, BridgeValidator validator,
+            RemoteControllerRegistry controllers) {
+        Bridge bridge = mock(Bridge.class);
+        when(bridge.getUID()).thenReturn(new ThingUID("qmotion:qsync:" + id));
+        when(bridge.getConfiguration()).thenReturn(new Configuration(configuration));
+        when(bridge.getStatus()).thenReturn(ThingStatus.ONLINE);
+
+        QsyncHandler handler = new QsyncHandler(bridge, validator, controllers);
+        handler.setCallback(mock(ThingHandlerCallback.class));
+        handler.initialize();
+        return handler;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RemoteControllerRegistry}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class RemoteControllerRegistryTest {
+
+    private RemoteControllerRegistry controllers;
+
+    @Before
+    public void setUp() {
+        controllers = new RemoteControllerRegistry(0);
+    }
+
+    @After
+    public void tearDown() {
+        controllers.dispose();
+    }
+
+    @Test
+    public void sameAddressSharesController() throws Exception {
+        RemoteController first = controllers.acquire("127.0.0.1", 9760);
+        RemoteController second = controllers.acquire("127.0.0.1", 9760);
+
+        assertSame(first, second);
+        assertNotSame(first, controllers.acquire("127.0.0.1", 9761));
+    }
+
+    @Test(expected = RemoteControllerException.class)
+    public void unresolvableHostIsNotAcquired() throws Exception {
+        // The .invalid top level domain never resolves
+        controllers.acquire("qsync.invalid", 9760);
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.qmotion.internal.ShadePosition;
+
+/**
+ * Tests for {@link RemoteController} against a {@link QsyncControllerStandIn}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class RemoteControllerTest {
+
+    private static final int ACK_TIMEOUT = 1000;
+
+    private QsyncControllerStandIn standIn;
+    private ExecutorService readers;
+    private RemoteController controller;
+
+    @Before
+    public void setUp() throws Exception {
+        standIn = new QsyncControllerStandIn();
+        readers = Executors.newCachedThreadPool();
+        controller = new RemoteController(standIn.getHost(), standIn.getPort(), 0, readers);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        standIn.close();
+        readers.shutdownNow();
+    }
+
+    @Test
+    public void echoedCommandIsAcknowledged() throws Exception {
+        assertTrue(controller.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50), ACK_TIMEOUT));
+
+        assertTrue(controller.getLastAckRoundTripMs() >= 0);
+        List<byte[]> received = standIn.getCommands();
+        assertEquals(1, received.size());
+        assertArrayEquals(new byte[] { 0x00, 0x00, 0x00, 0x09, ShadePosition.POSITION_50.getCommandCode() },
+                received.get(0));
+    }
+
+    @Test
+    public void unansweredCommandIsNotAcknowledged() throws Exception {
+        standIn.setReplier(payload -> null);
+
+        assertFalse(controller.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50), 100));
+        assertEquals(1, standIn.getCommands().size());
+    }
+
+    @Test(expected = RemoteControllerException.class)
+    public void interruptWhileWaitingForAcknowledgementFails() throws Exception {
+        standIn.setReplier(payload -> null);
+        Thread sender = Thread.currentThread();
+        Thread interrupter = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            sender.interrupt();
+        });
+
+        interrupter.start();
+        try {
+            controller.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50), 5000);
+        } finally {
+            interrupter.join();
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void replyWithSameGroupIdIsNotAnAcknowledgement() throws Exception {
+        // Byte 3 matches the group id, the rest of the payload does not
+        standIn.setReplier(payload -> payload.length == 5 ? new byte[] { 0x01, 0x00, 0x00, 0x09, 0x00 } : null);
+
+        assertFalse(controller.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50), 100));
+    }
+
+    @Test
+    public void replyBeforeCommandFrameIsNotAnAcknowledgement() throws Exception {
+        // Frames are paced like for a real controller, so replies to the headers arrive before the command frame
+        RemoteController pacedController = new RemoteController(standIn.getHost(), standIn.getPort(), 100, readers);
+        byte[] commandPayload = { 0x00, 0x00, 0x00, 0x09, ShadePosition.POSITION_50.getCommandCode() };
+        // Answer the headers with what would be the acknowledgement, but stay silent on the command itself
+        standIn.setReplier(payload -> payload.length < 5 ? commandPayload : null);
+
+        assertFalse(pacedController.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50), 100));
+    }
+
+    @Test
+    public void acknowledgementsMatchTheirCommands() throws Exception {
+        List<ShadeCommand> commands = Arrays.asList(new ShadeCommand(9, ShadePosition.POSITION_0),
+                new ShadeCommand(10, ShadePosition.POSITION_100), new ShadeCommand(9, ShadePosition.POSITION_100));
+        // Only acknowledge commands for group 10
+        standIn.setReplier(payload -> payload.length == 5 && payload[3] == 10 ? payload : null);
+
+        assertEquals(1, controller.sendCommands(commands, 100, false));
+        assertEquals(3, standIn.getCommands().size());
+    }
+
+    @Test
+    public void sliceSendsHeadersWithEveryCommand() throws Exception {
+        List<ShadeCommand> commands = Arrays.asList(new ShadeCommand(9, ShadePosition.POSITION_0),
+                new ShadeCommand(10, ShadePosition.POSITION_100), new ShadeCommand(11, ShadePosition.POSITION_50));
+
+        assertEquals(3, controller.sendCommands(commands, ACK_TIMEOUT, false));
+        assertEquals(1, standIn.getConnectionCount());
+        assertEquals(3 * commands.size(), standIn.getFrameCount());
+    }
+
+    @Test
+    public void pipelinedSliceSendsHeadersOnce() throws Exception {
+        List<ShadeCommand> commands = Arrays.asList(new ShadeCommand(9, ShadePosition.POSITION_0),
+                new ShadeCommand(10, ShadePosition.POSITION_100), new ShadeCommand(11, ShadePosition.POSITION_50));
+
+        assertEquals(3, controller.sendCommands(commands, ACK_TIMEOUT, true));
+        assertEquals(1, standIn.getConnectionCount());
+        assertEquals(2 + commands.size(), standIn.getFrameCount());
+    }
+
+    @Test
+    public void sliceWaitsForAcknowledgementsTogether() throws Exception {
+        List<ShadeCommand> commands = Arrays.asList(new ShadeCommand(9, ShadePosition.POSITION_0),
+                new ShadeCommand(10, ShadePosition.POSITION_100), new ShadeCommand(11, ShadePosition.POSITION_50));
+        standIn.setReplier(payload -> null);
+
+        long start = System.nanoTime();
+        assertEquals(0, controller.sendCommands(commands, 300, false));
+        // Waiting per command would take at least 900 ms
+        assertTrue(System.nanoTime() - start < 800_000_000L);
+    }
+
+    @Test
+    public void noAckTimeoutDoesNotWait() throws Exception {
+        standIn.setReplier(payload -> null);
+
+        long start = System.nanoTime();
+        assertFalse(controller.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50), 0));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+    }
+
+    @Test
+    public void probeDoesNotReadReplies() throws Exception {
+        ThreadPoolExecutor probeReaders = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        try {
+            new RemoteController(standIn.getHost(), standIn.getPort(), 0, probeReaders).probe();
+
+            assertEquals(0, probeReaders.getTaskCount());
+        } finally {
+            probeReaders.shutdownNow();
+        }
+    }
+
+    @Test(expected = RemoteControllerException.class)
+    public void unreachableControllerFails() throws Exception {
+        // A bound port nobody listens on. A port merely closed again could be picked as the local port of the
+        // connection, which then connects to itself.
+        try (Socket unused = new Socket()) {
+            unused.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            RemoteController unreachable = new RemoteController(unused.getLocalAddress().getHostAddress(),
+                    unused.getLocalPort(), 0, readers);
+
+            unreachable.sendCommand(new ShadeCommand(9, ShadePosition.POSITION_50), 0);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ReplyFrameDecoder}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class ReplyFrameDecoderTest {
+
+    private List<byte[]> frames;
+    private ReplyFrameDecoder decoder;
+
+    @Before
+    public void setUp() {
+        frames = new ArrayList<>();
+        decoder = new ReplyFrameDecoder((payload, length) -> frames.add(Arrays.copyOf(payload, length)));
+    }
+
+    @Test
+    public void decodesCompleteFrame() {
+        feed(0x1b, 0x05, 0x00, 0x00, 0x00, 0x09, 0x0e);
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(bytes(0x00, 0x00, 0x00, 0x09, 0x0e), frames.get(0));
+    }
+
+    @Test
+    public void decodesFrameSplitOverReads() {
+        byte[] input = bytes(0x1b, 0x05, 0x00, 0x00, 0x00, 0x09, 0x0e);
+        for (int i = 0; i < input.length; i++) {
+            decoder.decode(input, i, 1);
+            assertEquals(i == input.length - 1 ? 1 : 0, frames.size());
+        }
+
+        assertArrayEquals(bytes(0x00, 0x00, 0x00, 0x09, 0x0e), frames.get(0));
+    }
+
+    @Test
+    public void decodesZeroLengthFrames() {
+        feed(0x1b, 0x00, 0x1b, 0x00, 0x1b, 0x01, 0x00);
+
+        assertEquals(3, frames.size());
+        assertEquals(0, frames.get(0).length);
+        assertEquals(0, frames.get(1).length);
+        assertArrayEquals(bytes(0x00), frames.get(2));
+    }
+
+    @Test
+    public void skipsJunkBetweenFrames() {
+        feed(0x42, 0x00, 0x1b, 0x01, 0x07, 0xff, 0x13, 0x1b, 0x02, 0x09, 0x0e, 0x55);
+
+        assertEquals(2, frames.size());
+        assertArrayEquals(bytes(0x07), frames.get(0));
+        assertArrayEquals(bytes(0x09, 0x0e), frames.get(1));
+    }
+
+    @Test
+    public void markerInsidePayloadIsPayload() {
+        feed(0x1b, 0x02, 0x1b, 0x1b);
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(bytes(0x1b, 0x1b), frames.get(0));
+    }
+
+    @Test
+    public void decodesOffsetIntoBuffer() {
+        byte[] input = bytes(0x1b, 0x01, 0x01, 0x1b, 0x01, 0x02);
+        decoder.decode(input, 3, 3);
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(bytes(0x02), frames.get(0));
+    }
+
+    @Test
+    public void resetDropsPartialFrame() {
+        feed(0x1b, 0x03, 0x01);
+        decoder.reset();
+        feed(0x1b, 0x01, 0x02);
+
+        assertEquals(1, frames.size());
+        assertArrayEquals(bytes(0x02), frames.get(0));
+    }
+
+    private void feed(int... input) {
+        byte[] buffer = bytes(input);
+        decoder.decode(buffer, 0, buffer.length);
+    }
+
+    private static byte[] bytes(int... input) {
+        byte[] result = new byte[input.length];
+        for (int i = 0; i < input.length; i++) {
+            result[i] = (byte) input[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link BridgeValidator} runs the initial reachability check of Qsync
+ * bridges. Bridges come up ONLINE right away and are checked in the background,
+ * several at a time but never more than {@link #MAX_CONCURRENT_VALIDATIONS}, so
+ * startup neither waits for each controller in turn nor floods the network.
+ * Checks run on the shared thing handler pool, the ones over the limit wait in
+ * a queue rather than holding a thread.
+ *
+ * Once all bridges known at the time were checked, it logs how long it took
+ * and how many ended up ONLINE and OFFLINE. Shade groups follow the status of
+ * their bridge as soon as it changes, so this is when all things have settled.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+@NonNullByDefault
+public class BridgeValidator {
+
+    private static final int MAX_CONCURRENT_VALIDATIONS = 4;
+
+    // Pool the scheduler of thing handlers runs on, it must be asked for as a scheduled pool
+    private static final String THING_HANDLER_THREADPOOL_NAME = "thingHandler";
+
+    private final Logger logger = LoggerFactory.getLogger(BridgeValidator.class);
+
+    private final Executor executor;
+
+    // Validations waiting for one of the others to finish, guarded by this
+    private final Queue<BooleanSupplier> queue = new ArrayDeque<>();
+
+    private int running;
+    private int pending;
+    private int online;
+    private int offline;
+    private long startNanos;
+    private boolean disposed;
+
+    public BridgeValidator() {
+        this(ThreadPoolManager.getScheduledPool(THING_HANDLER_THREADPOOL_NAME));
+    }
+
+    BridgeValidator(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Run the validation of a bridge in the background.
+     *
+     * @param validation check of a single bridge, updating its status and returning true if it is reachable
+     */
+    public void validate(BooleanSupplier validation) {
+        synchronized (this) {
+            if (disposed) {
+                return;
+            }
+            if (pending == 0) {
+                startNanos = System.nanoTime();
+                online = 0;
+                offline = 0;
+            }
+            pending++;
+            queue.add(validation);
+        }
+        startNext();
+    }
+
+    private void startNext() {
+        BooleanSupplier validation;
+        synchronized (this) {
+            if (running >= MAX_CONCURRENT_VALIDATIONS || (validation = queue.poll()) == null) {
+                return;
+            }
+            running++;
+        }
+
+        try {
+            executor.execute(() -> run(validation));
+        } catch (RejectedExecutionException e) {
+            logger.debug("Could not start bridge validation", e);
+            finished(false);
+        }
+    }
+
+    private void run(BooleanSupplier validation) {
+        boolean reachable = false;
+        try {
+            reachable = validation.getAsBoolean();
+        } finally {
+            finished(reachable);
+        }
+    }
+
+    private void finished(boolean reachable) {
+        synchronized (this) {
+            running--;
+            if (reachable) {
+                online++;
+            } else {
+                offline++;
+            }
+            if (--pending == 0) {
+                logger.debug("Validated {} Qsync bridge(s) in {} ms, {} ONLINE and {} OFFLINE", online + offline,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), online, offline);
+            }
+        }
+        startNext();
+    }
+
+    /**
+     * Drops the validations that did not start yet. The thread pool is shared,
+     * so it is left running.
+     */
+    public synchronized void dispose() {
+        disposed = true;
+        pending -= queue.size();
+        queue.clear();
+    }
+}
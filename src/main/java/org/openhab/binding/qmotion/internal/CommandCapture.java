@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
+
+/**
+ * The {@link CommandCapture} records the shade commands issued to one bridge
+ * into a compact binary log, so that real command traffic can later be read
+ * back with {@link #read(Path)} and replayed.
+ *
+ * The file is append only and memory mapped, recording a command only copies
+ * a few bytes. It starts with a header (magic, version, record count, bridge
+ * UID) followed by fixed size records (epoch millis, group id, position
+ * command code). The record count is written after each record, so a crash
+ * loses at most the record being written. Recording into an existing capture
+ * of the same bridge appends to it, any other existing file is left untouched.
+ * A capture is locked while recording, so two bridges cannot record into the
+ * same file.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class CommandCapture implements Closeable {
+
+    private static final int MAGIC = 0x514d4350; // "QMCP"
+    private static final int VERSION = 2;
+
+    // Magic, version, record count and length of the bridge UID, the UID itself follows
+    private static final int HEADER_SIZE = 18;
+    private static final int COUNT_OFFSET = 8;
+    private static final int UID_LENGTH_OFFSET = 16;
+    private static final int RECORD_SIZE = 13;
+
+    // The mapping grows in steps of this many bytes
+    private static final int MAPPING_CHUNK = 64 * 1024;
+
+    /**
+     * A command read back from a capture.
+     */
+    public static class CapturedCommand {
+        private final ThingUID bridgeUID;
+        private final long timestamp;
+        private final ShadeCommand command;
+
+        CapturedCommand(ThingUID bridgeUID, long timestamp, ShadeCommand command) {
+            this.bridgeUID = bridgeUID;
+            this.timestamp = timestamp;
+            this.command = command;
+        }
+
+        /**
+         * @return bridge the command was issued to
+         */
+        public ThingUID getBridgeUID() {
+            return bridgeUID;
+        }
+
+        /**
+         * @return time the command was recorded, in epoch milliseconds
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public ShadeCommand getCommand() {
+            return command;
+        }
+    }
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final int recordsOffset;
+    private MappedByteBuffer buffer;
+    private long count;
+
+    /**
+     * Open a capture file for recording, creating it if needed.
+     *
+     * @param file      to record into
+     * @param bridgeUID bridge the recorded commands are issued to
+     * @throws IOException if the file cannot be opened, is not a capture of this bridge or is already being
+     *             recorded into
+     */
+    public CommandCapture(Path file, ThingUID bridgeUID) throws IOException {
+        byte[] uid = bridgeUID.getAsString().getBytes(StandardCharsets.UTF_8);
+        recordsOffset = HEADER_SIZE + uid.length;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            lock = lock(channel, file);
+
+            long size = channel.size();
+            if (size == 0) {
+                buffer = channel.map(MapMode.READ_WRITE, 0, MAPPING_CHUNK);
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putLong(COUNT_OFFSET, 0);
+                buffer.putShort(UID_LENGTH_OFFSET, (short) uid.length);
+                buffer.position(HEADER_SIZE);
+                buffer.put(uid);
+            } else {
+                // Mapping for writing can grow the file, so check it is a capture first
+                MappedByteBuffer existing = channel.map(MapMode.READ_ONLY, 0, size);
+                count = readHeader(existing, file);
+                ThingUID capturedUID = readBridgeUID(existing, file);
+                if (!bridgeUID.equals(capturedUID)) {
+                    throw new IOException("Capture " + file + " belongs to bridge " + capturedUID);
+                }
+                if (recordsOffset + count * RECORD_SIZE > size) {
+                    throw new IOException("Capture " + file + " is truncated");
+                }
+                buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(size, MAPPING_CHUNK));
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static FileLock lock(FileChannel channel, Path file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Locked by this process
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IOException("Capture " + file + " is already being recorded into");
+        }
+        return lock;
+    }
+
+    /**
+     * Append a command to the capture.
+     *
+     * @param command the command being sent
+     * @throws IOException if the capture cannot grow
+     */
+    public synchronized void record(ShadeCommand command) throws IOException {
+        int position = (int) (recordsOffset + count * RECORD_SIZE);
+        if (position + RECORD_SIZE > buffer.capacity()) {
+            buffer = channel.map(MapMode.READ_WRITE, 0, buffer.capacity() + MAPPING_CHUNK);
+        }
+
+        buffer.putLong(position, System.currentTimeMillis());
+        buffer.putInt(position + 8, command.getGroupId());
+        buffer.put(position + 12, command.getPosition().getCommandCode());
+        buffer.putLong(COUNT_OFFSET, ++count);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        lock.release();
+        channel.close();
+    }
+
+    /**
+     * Read all commands of a capture file.
+     *
+     * @param file capture to read
+     * @return the recorded commands, oldest first
+     * @throws IOException if the file cannot be read or is not a capture
+     */
+    public static List<CapturedCommand> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+            long count = readHeader(buffer, file);
+            ThingUID bridgeUID = readBridgeUID(buffer, file);
+            int recordsOffset = HEADER_SIZE + buffer.getShort(UID_LENGTH_OFFSET);
+
+            List<CapturedCommand> commands = new ArrayList<>((int) count);
+            for (int i = 0; i < count; i++) {
+                int position = recordsOffset + i * RECORD_SIZE;
+                if (position + RECORD_SIZE > buffer.capacity()) {
+                    throw new IOException("Capture " + file + " is truncated");
+                }
+                ShadeCommand command = new ShadeCommand(buffer.getInt(position + 8),
+                        ShadePosition.fromCommandCode(buffer.get(position + 12)));
+                commands.add(new CapturedCommand(bridgeUID, buffer.getLong(position), command));
+            }
+            return commands;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Capture " + file + " holds an unknown shade position", e);
+        }
+    }
+
+    private static long readHeader(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a qmotion command capture");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported capture version " + buffer.getInt(4) + " in " + file);
+        }
+        return buffer.getLong(COUNT_OFFSET);
+    }
+
+    private static ThingUID readBridgeUID(ByteBuffer buffer, Path file) throws IOException {
+        int length = buffer.getShort(UID_LENGTH_OFFSET);
+        if (length <= 0 || HEADER_SIZE + length > buffer.capacity()) {
+            throw new IOException("Capture " + file + " is truncated");
+        }
+        byte[] uid = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(HEADER_SIZE);
+        source.get(uid);
+        try {
+            return new ThingUID(new String(uid, StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Capture " + file + " holds an invalid bridge UID", e);
+        }
+    }
+}
@@ -27,7 +27,7 @@ import org.eclipse.smarthome.core.thing.ThingTypeUID;
 @NonNullByDefault
 public class QmotionBindingConstants {
 
-    private static final String BINDING_ID = "qmotion";
+    public static final String BINDING_ID = "qmotion";
 
     // List of all Thing Type UIDs
     public static final ThingTypeUID THING_TYPE_QSYNC = new ThingTypeUID(BINDING_ID, "qsync");
@@ -22,6 +22,8 @@ import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandlerFactory;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandlerFactory;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerRegistry;
+import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Component;
 
 /**
@@ -34,6 +36,12 @@ import org.osgi.service.component.annotations.Component;
 @Component(configurationPid = "binding.qmotion", service = ThingHandlerFactory.class)
 public class QmotionHandlerFactory extends BaseThingHandlerFactory {
 
+    private final ShadeCommandDispatcher dispatcher = new ShadeCommandDispatcher();
+
+    private final BridgeValidator validator = new BridgeValidator();
+
+    private final RemoteControllerRegistry controllers = new RemoteControllerRegistry();
+
     @Override
     public boolean supportsThingType(ThingTypeUID thingTypeUID) {
         return SUPPORTED_THING_TYPES_UIDS.contains(thingTypeUID);
@@ -44,11 +52,28 @@ public class QmotionHandlerFactory extends BaseThingHandlerFactory {
         ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
         if (THING_TYPE_QSYNC.equals(thingTypeUID)) {
-            return new QsyncHandler((Bridge) thing);
+            QsyncHandler handler = new QsyncHandler((Bridge) thing, validator, controllers);
+            dispatcher.addBridge(handler);
+            return handler;
         } else if (THING_TYPE_SHADE_GROUP.equals(thingTypeUID)) {
-            return new QmotionShadeGroupHandler(thing);
+            return new QmotionShadeGroupHandler(thing, dispatcher);
         }
 
         return null;
     }
+
+    @Override
+    protected void removeHandler(ThingHandler thingHandler) {
+        if (thingHandler instanceof QsyncHandler) {
+            dispatcher.removeBridge((QsyncHandler) thingHandler);
+        }
+    }
+
+    @Override
+    protected void deactivate(ComponentContext componentContext) {
+        dispatcher.dispose();
+        validator.dispose();
+        controllers.dispose();
+        super.deactivate(componentContext);
+    }
 }
@@ -23,11 +23,11 @@ import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.thing.Thing;
 import org.eclipse.smarthome.core.thing.ThingStatus;
 import org.eclipse.smarthome.core.thing.ThingStatusDetail;
+import org.eclipse.smarthome.core.thing.ThingStatusInfo;
 import org.eclipse.smarthome.core.thing.binding.BaseThingHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.RefreshType;
-import org.openhab.binding.qmotion.internal.protocol.RemoteControllerException;
 import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,8 +46,13 @@ public class QmotionShadeGroupHandler extends BaseThingHandler {
     @Nullable
     private ShadeGroupConfiguration config;
 
-    public QmotionShadeGroupHandler(Thing thing) {
+    private volatile boolean configurationValid;
+
+    private final ShadeCommandDispatcher dispatcher;
+
+    public QmotionShadeGroupHandler(Thing thing, ShadeCommandDispatcher dispatcher) {
         super(thing);
+        this.dispatcher = dispatcher;
     }
 
     @Override
@@ -57,25 +62,18 @@ public class QmotionShadeGroupHandler extends BaseThingHandler {
             return;
         }
 
-        try {
-            if (command instanceof PercentType) {
-                ShadePosition position = ShadePosition.fromPercentType((PercentType) command);
-                setPosition(position);
-            } else if (command instanceof UpDownType) {
-                ShadePosition position = ShadePosition.fromUpDownType((UpDownType) command);
-                setPosition(position);
-            } else if (command instanceof StopMoveType) {
-                logger.warn("Qmotion shades do not support StopMove commands");
-            } else if (command instanceof RefreshType) {
-                // This is a fire and forget protocol, cannot refresh unfortunately.
-            } else {
-                logger.warn("Did not understand type of command [{}]", command);
-            }
-        } catch (RemoteControllerException e) {
-            logger.warn("Exception when trying to set shade position!");
-            logger.debug("Exception when trying to set shade position!", e);
-
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR);
+        if (command instanceof PercentType) {
+            ShadePosition position = ShadePosition.fromPercentType((PercentType) command);
+            setPosition(position);
+        } else if (command instanceof UpDownType) {
+            ShadePosition position = ShadePosition.fromUpDownType((UpDownType) command);
+            setPosition(position);
+        } else if (command instanceof StopMoveType) {
+            logger.warn("Qmotion shades do not support StopMove commands");
+        } else if (command instanceof RefreshType) {
+            // This is a fire and forget protocol, cannot refresh unfortunately.
+        } else {
+            logger.warn("Did not understand type of command [{}]", command);
         }
     }
 
@@ -83,21 +81,29 @@ public class QmotionShadeGroupHandler extends BaseThingHandler {
     public void initialize() {
         config = getConfigAs(ShadeGroupConfiguration.class);
 
-        updateStatus(ThingStatus.UNKNOWN);
+        // Groups cannot be checked against the controller, their status simply follows the bridge
+        configurationValid = validConfiguration(config);
+        if (configurationValid) {
+            Bridge bridge = getBridge();
+            updateStatusFromBridge(bridge != null ? bridge.getStatus() : ThingStatus.OFFLINE);
+        }
+    }
 
-        scheduler.execute(() -> {
-            boolean thingReachable = false;
-            if (validConfiguration(config)) {
-                // TODO: Call bridge and get list of groups, confirm this group is good
-                thingReachable = true;
-            }
-            if (thingReachable) {
-                updateStatus(ThingStatus.ONLINE);
-            } else {
-                updateStatus(ThingStatus.OFFLINE);
-            }
-        });
+    @Override
+    public void bridgeStatusChanged(ThingStatusInfo bridgeStatusInfo) {
+        if (configurationValid) {
+            updateStatusFromBridge(bridgeStatusInfo.getStatus());
+        }
+    }
 
+    private void updateStatusFromBridge(ThingStatus bridgeStatus) {
+        if (bridgeStatus == ThingStatus.ONLINE) {
+            updateStatus(ThingStatus.ONLINE);
+        } else if (bridgeStatus == ThingStatus.UNKNOWN) {
+            updateStatus(ThingStatus.UNKNOWN);
+        } else {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE);
+        }
     }
 
     private boolean validConfiguration(@Nullable ShadeGroupConfiguration config) {
@@ -118,22 +124,32 @@ public class QmotionShadeGroupHandler extends BaseThingHandler {
         } catch (NumberFormatException e) {
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
                     "Shade id cannot be parsed as an integer");
+
+            return false;
         }
 
         return true;
     }
 
-    private void setPosition(ShadePosition position) throws RemoteControllerException {
+    private void setPosition(ShadePosition position) {
         QsyncHandler bridge;
         if ((bridge = getBridgeHandler()) == null) {
             return;
         }
 
+        // Sent together with the commands of other groups moved at the same time
         ShadeCommand command = new ShadeCommand(getShadeId(), position);
-        bridge.sendCommand(command);
+        dispatcher.submit(bridge.getThing().getUID(), command).whenComplete((result, e) -> {
+            if (e == null) {
+                updatePosition(position);
+                return;
+            }
 
-        updatePosition(position);
+            logger.warn("Exception when trying to set shade position!");
+            logger.debug("Exception when trying to set shade position!", e);
 
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR);
+        });
     }
 
     private void updatePosition(ShadePosition position) {
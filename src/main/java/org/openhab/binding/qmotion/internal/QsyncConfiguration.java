@@ -21,6 +21,16 @@ public class QsyncConfiguration {
 
     private String ipAddress;
 
+    private Integer port;
+
+    private Integer probeInterval;
+
+    private String captureFile;
+
+    private Integer ackTimeout;
+
+    private Boolean pipelineCommands;
+
     public String getIpAddress() {
         return this.ipAddress;
     }
@@ -28,4 +38,56 @@ public class QsyncConfiguration {
     public void setIpAddress(String ipAddress) {
         this.ipAddress = ipAddress;
     }
+
+    public Integer getPort() {
+        return this.port;
+    }
+
+    public void setPort(Integer port) {
+        this.port = port;
+    }
+
+    /**
+     * @return seconds between health probes of the controller, 0 or less disables probing
+     */
+    public Integer getProbeInterval() {
+        return this.probeInterval;
+    }
+
+    public void setProbeInterval(Integer probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+    /**
+     * @return file to record all shade commands into, empty or null disables capturing
+     */
+    public String getCaptureFile() {
+        return this.captureFile;
+    }
+
+    public void setCaptureFile(String captureFile) {
+        this.captureFile = captureFile;
+    }
+
+    /**
+     * @return milliseconds to wait for the controller to acknowledge each command, 0 or less to not wait
+     */
+    public Integer getAckTimeout() {
+        return this.ackTimeout;
+    }
+
+    public void setAckTimeout(Integer ackTimeout) {
+        this.ackTimeout = ackTimeout;
+    }
+
+    /**
+     * @return true to send the header frames once for several commands instead of once per command
+     */
+    public Boolean getPipelineCommands() {
+        return this.pipelineCommands;
+    }
+
+    public void setPipelineCommands(Boolean pipelineCommands) {
+        this.pipelineCommands = pipelineCommands;
+    }
 }
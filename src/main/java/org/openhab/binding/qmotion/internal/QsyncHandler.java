@@ -12,6 +12,15 @@
  */
 package org.openhab.binding.qmotion.internal;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
@@ -23,6 +32,7 @@ import org.eclipse.smarthome.core.thing.binding.BaseBridgeHandler;
 import org.eclipse.smarthome.core.types.Command;
 import org.openhab.binding.qmotion.internal.protocol.RemoteController;
 import org.openhab.binding.qmotion.internal.protocol.RemoteControllerException;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerRegistry;
 import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,11 +48,33 @@ public class QsyncHandler extends BaseBridgeHandler {
 
     private final Logger logger = LoggerFactory.getLogger(QsyncHandler.class);
 
+    // Maximum deviation of a probe from its configured interval
+    private static final int PROBE_JITTER_PERCENT = 20;
+
     @Nullable
     private QsyncConfiguration config;
 
-    public QsyncHandler(Bridge bridge) {
+    @Nullable
+    private RemoteController controller;
+
+    private final Object controllerLock = new Object();
+
+    private volatile boolean active;
+
+    @Nullable
+    private volatile ScheduledFuture<?> probeJob;
+
+    @Nullable
+    private CommandCapture capture;
+
+    private final BridgeValidator validator;
+
+    private final RemoteControllerRegistry controllers;
+
+    public QsyncHandler(Bridge bridge, BridgeValidator validator, RemoteControllerRegistry controllers) {
         super(bridge);
+        this.validator = validator;
+        this.controllers = controllers;
     }
 
     @Override
@@ -54,38 +86,113 @@ public class QsyncHandler extends BaseBridgeHandler {
     public void initialize() {
         config = getConfigAs(QsyncConfiguration.class);
 
-        updateStatus(ThingStatus.UNKNOWN);
-
-        scheduler.execute(() -> {
-            if (validConfiguration(this.config)) {
-                boolean thingReachable = false;
-                RemoteController controller = null;
-                try {
-                    controller = getRemoteController();
-                    if (controller == null) {
-                        return;
-                    }
-                    controller.openConnection();
-                    thingReachable = true;
-                } catch (RemoteControllerException e) {
-                    String host = (this.config != null ? this.config.getIpAddress() : "null");
-                    logger.debug("Could not connect to QsyncController at [{}])", host);
-                } finally {
-                    try {
-                        if (controller != null) {
-                            controller.closeConnection();
-                        }
-                    } catch (RemoteControllerException e) {
-                        logger.debug("Could not close connection");
-                    }
-                }
-                if (thingReachable) {
-                    updateStatus(ThingStatus.ONLINE);
-                } else {
-                    updateStatus(ThingStatus.OFFLINE);
-                }
+        if (!validConfiguration(this.config)) {
+            return;
+        }
+
+        // The controller is looked up and connected to on the first command or probe,
+        // come up optimistically and let the background validation correct the status
+        active = true;
+        capture = openCapture(this.config);
+        updateStatus(ThingStatus.ONLINE);
+
+        validator.validate(this::probeController);
+        scheduleProbe(true);
+    }
+
+    @Override
+    public void dispose() {
+        active = false;
+
+        ScheduledFuture<?> probeJob = this.probeJob;
+        if (probeJob != null) {
+            probeJob.cancel(true);
+            this.probeJob = null;
+        }
+
+        synchronized (controllerLock) {
+            RemoteController controller = this.controller;
+            if (controller != null) {
+                this.controller = null;
+                controllers.release(controller);
             }
-        });
+        }
+
+        CommandCapture capture = this.capture;
+        if (capture != null) {
+            this.capture = null;
+            try {
+                capture.close();
+            } catch (IOException e) {
+                logger.debug("Could not close command capture", e);
+            }
+        }
+    }
+
+    private @Nullable CommandCapture openCapture(@Nullable QsyncConfiguration config) {
+        if (config == null || StringUtils.isEmpty(config.getCaptureFile())) {
+            return null;
+        }
+
+        try {
+            return new CommandCapture(Paths.get(config.getCaptureFile()), getThing().getUID());
+        } catch (IOException | InvalidPathException e) {
+            logger.warn("Could not open command capture [{}], commands are not recorded: {}", config.getCaptureFile(),
+                    e.getMessage());
+            logger.debug("Could not open command capture", e);
+            return null;
+        }
+    }
+
+    /**
+     * Schedule the next health probe. The delay is jittered so that probes of
+     * several bridges started at the same time drift apart instead of hitting the
+     * network in lock step.
+     *
+     * @param first true for the first probe after initialization, which is spread
+     *            over a whole interval
+     */
+    private void scheduleProbe(boolean first) {
+        QsyncConfiguration config = this.config;
+        if (!active || config == null || config.getProbeInterval() == null
+                || config.getProbeInterval() <= 0) {
+            return;
+        }
+
+        long intervalMs = TimeUnit.SECONDS.toMillis(config.getProbeInterval());
+        long delayMs;
+        if (first) {
+            delayMs = ThreadLocalRandom.current().nextLong(intervalMs) + 1;
+        } else {
+            long jitterMs = intervalMs * PROBE_JITTER_PERCENT / 100;
+            delayMs = intervalMs + ThreadLocalRandom.current().nextLong(-jitterMs, jitterMs + 1);
+        }
+
+        probeJob = scheduler.schedule(() -> {
+            probeController();
+            scheduleProbe(false);
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return true if the controller could be connected to
+     */
+    private boolean probeController() {
+        try {
+            RemoteController controller = getRemoteController();
+            if (controller == null) {
+                return false;
+            }
+
+            controller.probe();
+            updateStatus(ThingStatus.ONLINE);
+            return true;
+        } catch (RemoteControllerException e) {
+            String host = (this.config != null ? this.config.getIpAddress() : "null");
+            logger.debug("Could not connect to QsyncController at [{}]", host, e);
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.getMessage());
+            return false;
+        }
     }
 
     private boolean validConfiguration(@Nullable QsyncConfiguration config) {
@@ -104,20 +211,95 @@ public class QsyncHandler extends BaseBridgeHandler {
         return true;
     }
 
+    /**
+     * Record a command issued to this bridge into the capture, if capturing is
+     * enabled. Commands are recorded when they are issued rather than when they
+     * are sent, so that a replay reproduces the traffic the bridge was given.
+     *
+     * @param command the command issued
+     */
+    void recordCommand(ShadeCommand command) {
+        CommandCapture capture = this.capture;
+        if (capture != null) {
+            try {
+                capture.record(command);
+            } catch (IOException e) {
+                logger.debug("Could not record command", e);
+            }
+        }
+    }
+
     public void sendCommand(ShadeCommand command) throws RemoteControllerException {
-        RemoteController controller = getRemoteController();
+        sendCommands(Collections.singletonList(command));
+    }
+
+    /**
+     * Send several commands to the Qsync controller back to back over a single connection.
+     *
+     * @param commands to send, in order
+     * @throws RemoteControllerException if sending fails, or if acknowledgements are enabled and a command was not
+     *             acknowledged
+     */
+    public void sendCommands(List<ShadeCommand> commands) throws RemoteControllerException {
+        RemoteController controller;
+        try {
+            controller = getRemoteController();
+        } catch (RemoteControllerException e) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.getMessage());
+            throw e;
+        }
         if (controller == null) {
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR);
             throw new RemoteControllerException("Could not get RemoteController");
         }
-        controller.sendCommand(command);
-    }
 
-    private @Nullable RemoteController getRemoteController() {
         QsyncConfiguration config = this.config;
-        if (config == null) {
-            return null;
+        int ackTimeout = (config != null && config.getAckTimeout() != null) ? config.getAckTimeout() : 0;
+        boolean pipelined = config != null && Boolean.TRUE.equals(config.getPipelineCommands());
+
+        int acknowledged;
+        try {
+            acknowledged = controller.sendCommands(commands, ackTimeout, pipelined);
+        } catch (RemoteControllerException e) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.getMessage());
+            throw e;
+        }
+
+        if (ackTimeout > 0 && acknowledged < commands.size()) {
+            // Acknowledgements were asked for, a command the controller did not confirm has not taken effect
+            String message = "Qsync controller did not acknowledge " + (commands.size() - acknowledged) + " of "
+                    + commands.size() + " command(s)";
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, message);
+            throw new RemoteControllerException(message);
+        }
+
+        if (getThing().getStatus() != ThingStatus.ONLINE) {
+            updateStatus(ThingStatus.ONLINE);
+        }
+    }
+
+    /**
+     * Get the shared controller, acquiring it on first use. Acquiring resolves the
+     * controller address, which may block, so it never happens in initialize.
+     * If the address cannot be resolved nothing is kept, the next command or
+     * probe tries again.
+     *
+     * @return the controller, null once disposed
+     * @throws RemoteControllerException if the controller address cannot be resolved
+     */
+    private @Nullable RemoteController getRemoteController() throws RemoteControllerException {
+        synchronized (controllerLock) {
+            QsyncConfiguration config = this.config;
+            if (!active || config == null) {
+                return null;
+            }
+            RemoteController controller = this.controller;
+            if (controller == null) {
+                controller = controllers.acquire(config.getIpAddress(),
+                        config.getPort() != null ? config.getPort() : RemoteControllerRegistry.DEFAULT_PORT);
+                this.controller = controller;
+            }
+            return controller;
         }
-        return new RemoteController(config.getIpAddress());
     }
 }
@@ -0,0 +1,249 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.openhab.binding.qmotion.internal.protocol.RemoteControllerException;
+import org.openhab.binding.qmotion.internal.protocol.ShadeCommand;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ShadeCommandDispatcher} sends shade commands spanning several
+ * Qsync bridges. Every bridge gets its own slice, sent in parallel with the
+ * other bridges over one connection, so the whole set takes about as long as
+ * the slowest bridge. Slice starts are staggered slightly so that all
+ * controllers are not connected to in the same instant.
+ *
+ * Sending a slice takes a thread for as long as the controller needs, several
+ * hundred milliseconds per command. Slices therefore run on threads of their
+ * own rather than on the bounded scheduler, which only runs the timers. A
+ * bridge sends one slice at a time, the next one starting when the previous
+ * one is done, so there are never more of these threads than bridges.
+ *
+ * Commands submitted one at a time, as shade groups do, are collected for a
+ * short while so that a rule moving several groups at once sends them as one
+ * slice per bridge rather than one connection per group.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+@NonNullByDefault
+public class ShadeCommandDispatcher {
+
+    // Delay between starting the slices of two bridges
+    private static final long STAGGER_MS = 25;
+
+    // How long submitted commands are collected before being sent
+    private static final long COALESCE_MS = 50;
+
+    private final Logger logger = LoggerFactory.getLogger(ShadeCommandDispatcher.class);
+
+    private final Map<ThingUID, QsyncHandler> bridges = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService senders = Executors
+            .newCachedThreadPool(new NamedThreadFactory(QmotionBindingConstants.BINDING_ID + "-sender", true));
+
+    // Submitted commands not sent yet, per bridge, guarded by this
+    private Map<ThingUID, List<Submission>> submissions = new LinkedHashMap<>();
+
+    // Last slice started for each bridge, guarded by this
+    private final Map<ThingUID, CompletableFuture<Void>> lastSlices = new HashMap<>();
+
+    @Nullable
+    private ScheduledFuture<?> flushJob;
+
+    public ShadeCommandDispatcher() {
+        this(ThreadPoolManager.getScheduledPool(QmotionBindingConstants.BINDING_ID + "-dispatcher"));
+    }
+
+    ShadeCommandDispatcher(ScheduledExecutorService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void addBridge(QsyncHandler bridge) {
+        bridges.put(bridge.getThing().getUID(), bridge);
+    }
+
+    public void removeBridge(QsyncHandler bridge) {
+        bridges.remove(bridge.getThing().getUID(), bridge);
+    }
+
+    /**
+     * Send a single command. It goes out together with the other commands
+     * submitted within {@value #COALESCE_MS} ms. If the bridge captures
+     * commands, the command is recorded right away.
+     *
+     * @param bridgeUID bridge to send the command to
+     * @param command   command to send
+     * @return completes once the command was sent, exceptionally if sending it failed
+     */
+    public CompletableFuture<Void> submit(ThingUID bridgeUID, ShadeCommand command) {
+        Submission submission = new Submission(command);
+
+        QsyncHandler bridge = bridges.get(bridgeUID);
+        if (bridge != null) {
+            bridge.recordCommand(command);
+        }
+
+        synchronized (this) {
+            submissions.computeIfAbsent(bridgeUID, uid -> new ArrayList<>()).add(submission);
+            if (flushJob == null) {
+                flushJob = scheduler.schedule(this::flush, COALESCE_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        return submission.future;
+    }
+
+    private void flush() {
+        long start = System.nanoTime();
+        Map<ThingUID, List<Submission>> flushed;
+        synchronized (this) {
+            flushed = submissions;
+            submissions = new LinkedHashMap<>();
+            flushJob = null;
+        }
+
+        List<CompletableFuture<Void>> slices = new ArrayList<>();
+        long staggerMs = 0;
+        for (Entry<ThingUID, List<Submission>> slice : flushed.entrySet()) {
+            List<ShadeCommand> commands = new ArrayList<>();
+            for (Submission submission : slice.getValue()) {
+                commands.add(submission.command);
+            }
+
+            CompletableFuture<Void> sent;
+            QsyncHandler bridge = bridges.get(slice.getKey());
+            if (bridge == null) {
+                sent = new CompletableFuture<>();
+                sent.completeExceptionally(
+                        new RemoteControllerException("Unknown Qsync bridge [" + slice.getKey() + "]"));
+            } else {
+                sent = sendSlice(bridge, commands, staggerMs);
+                staggerMs += STAGGER_MS;
+            }
+
+            for (Submission submission : slice.getValue()) {
+                sent.whenComplete((result, e) -> {
+                    if (e == null) {
+                        submission.future.complete(null);
+                    } else {
+                        submission.future.completeExceptionally(e);
+                    }
+                });
+            }
+            slices.add(sent);
+        }
+
+        CompletableFuture.allOf(slices.toArray(new CompletableFuture<?>[slices.size()]))
+                .whenComplete((result, e) -> logger.debug("Dispatched commands to {} bridge(s) in {} ms",
+                        slices.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    private CompletableFuture<Void> sendSlice(QsyncHandler bridge, List<ShadeCommand> commands, long delayMs) {
+        ThingUID bridgeUID = bridge.getThing().getUID();
+        CompletableFuture<Void> slice = new CompletableFuture<>();
+
+        CompletableFuture<Void> previous;
+        synchronized (this) {
+            previous = lastSlices.put(bridgeUID, slice);
+        }
+        slice.whenComplete((result, e) -> {
+            synchronized (this) {
+                lastSlices.remove(bridgeUID, slice);
+            }
+        });
+
+        Runnable send = () -> {
+            try {
+                bridge.sendCommands(commands);
+                slice.complete(null);
+            } catch (RemoteControllerException | RuntimeException e) {
+                logger.debug("Could not send commands to {}", bridgeUID, e);
+                slice.completeExceptionally(e);
+            }
+        };
+        Runnable start = () -> {
+            try {
+                senders.execute(send);
+            } catch (RejectedExecutionException e) {
+                slice.completeExceptionally(new RemoteControllerException("Dispatcher disposed", e));
+            }
+        };
+
+        if (previous == null) {
+            scheduler.schedule(start, delayMs, TimeUnit.MILLISECONDS);
+        } else {
+            // The controller takes one slice at a time anyway, do not hold a thread waiting for it
+            previous.whenComplete((result, e) -> start.run());
+        }
+
+        return slice;
+    }
+
+    /**
+     * Fails the commands that were submitted but not sent yet and interrupts
+     * the slices being sent. The scheduler is shared, so it is left running.
+     */
+    public void dispose() {
+        Map<ThingUID, List<Submission>> dropped;
+        synchronized (this) {
+            ScheduledFuture<?> job = flushJob;
+            if (job != null) {
+                job.cancel(false);
+                flushJob = null;
+            }
+            dropped = submissions;
+            submissions = new LinkedHashMap<>();
+        }
+
+        for (List<Submission> slice : dropped.values()) {
+            for (Submission submission : slice) {
+                submission.future.completeExceptionally(
+                        new RemoteControllerException("Dispatcher disposed before sending " + submission.command));
+            }
+        }
+        senders.shutdownNow();
+        bridges.clear();
+    }
+
+    private static class Submission {
+        private final ShadeCommand command;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Submission(ShadeCommand command) {
+            this.command = command;
+        }
+    }
+}
@@ -59,6 +59,15 @@ public enum ShadePosition {
         return POSITION_100;
     }
 
+    public static ShadePosition fromCommandCode(byte commandCode) {
+        for (ShadePosition position : values()) {
+            if (position.commandCode == commandCode) {
+                return position;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown shade position command code %02x", commandCode));
+    }
+
     public static ShadePosition fromPercentType(PercentType percent) {
         return fromFloat(percent.floatValue());
     }
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A command frame sent to the QsyncController that is waiting for its
+ * acknowledgement. A reply acknowledges it only when its payload repeats the
+ * payload of the command frame exactly.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+class PendingAck {
+
+    // Frames are a marker byte and a length byte followed by the payload
+    private static final int PAYLOAD_OFFSET = 2;
+
+    private final ShadeCommand command;
+    private final byte[] frame;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile long sentNanos;
+    private volatile long ackNanos;
+
+    PendingAck(ShadeCommand command, byte[] frame) {
+        this.command = command;
+        this.frame = frame;
+    }
+
+    ShadeCommand getCommand() {
+        return command;
+    }
+
+    void sent() {
+        sentNanos = System.nanoTime();
+    }
+
+    boolean matches(byte[] payload, int length) {
+        if (length != frame.length - PAYLOAD_OFFSET) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (payload[i] != frame[PAYLOAD_OFFSET + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false if the command was already acknowledged
+     */
+    synchronized boolean acknowledge() {
+        if (isAcknowledged()) {
+            return false;
+        }
+        ackNanos = System.nanoTime();
+        latch.countDown();
+        return true;
+    }
+
+    boolean isAcknowledged() {
+        return latch.getCount() == 0;
+    }
+
+    /**
+     * @return true if the acknowledgement arrived within the timeout
+     */
+    boolean await(long timeoutMs) throws InterruptedException {
+        return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return milliseconds since the frame was written
+     */
+    long getAgeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sentNanos);
+    }
+
+    /**
+     * @return milliseconds between writing the frame and its acknowledgement, only meaningful once acknowledged
+     */
+    long getRoundTripMs() {
+        return TimeUnit.NANOSECONDS.toMillis(ackNanos - sentNanos);
+    }
+}
@@ -18,8 +18,13 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,6 +33,13 @@ import org.slf4j.LoggerFactory;
  * The {@link RemoteController} is responsible for sending commands to the
  * QsyncController.
  *
+ * Anything the controller sends back is drained by a {@link ReplyReader}. The
+ * protocol description only documents the frames sent to the controller, not
+ * its replies, so a reply is only taken as the acknowledgement of a command if
+ * it repeats the payload of the command frame exactly and arrives after that
+ * frame was written. Other replies are read and ignored; answers to the header
+ * frames are kept apart from it by the pause between frames.
+ *
  * @see <a
  *      href="https://github.com/devbobo/qmotion/blob/master/Protocol.md">
  *      https://github.com/devbobo/qmotion/blob/master/Protocol.md</a>
@@ -40,44 +52,75 @@ public class RemoteController {
 
     private static final int CONNECTION_TIMEOUT = 500;
 
-    private static Object lock = new Object();
+    // Pause between two frames sent to the controller
+    static final int FRAME_DELAY = 300;
+
+    // The qsync controller cannot handle concurrent connections. The lock is fair so
+    // that command sequences from all handlers sharing this controller run in order.
+    private final ReentrantLock lock = new ReentrantLock(true);
 
     private final Logger logger = LoggerFactory.getLogger(RemoteController.class);
 
     private String host;
-    private int TCP_PORT = 9760;
+    private int port;
+    private int frameDelay;
+    static final int TCP_PORT = 9760;
+
+    private final ExecutorService readers;
 
     private Socket socket;
     private OutputStream os;
 
+    private final List<PendingAck> pendingAcks = new CopyOnWriteArrayList<>();
+    private volatile long lastAckRoundTripMs = -1;
+
     /**
-     * Create and initialize remote controller instance.
+     * Create and initialize remote controller instance. Handlers should obtain
+     * instances from the {@link RemoteControllerRegistry} so that there is only
+     * one per physical controller.
      *
-     * @param host IP address (or host name) of Qsync controller.
+     * @param host       IP address (or host name) of Qsync controller.
+     * @param port       TCP port of the Qsync controller.
+     * @param frameDelay pause between two frames in milliseconds, the controller needs {@link #FRAME_DELAY}
+     * @param readers    executor running the {@link ReplyReader} of each connection
      */
-    public RemoteController(String host) {
+    public RemoteController(String host, int port, int frameDelay, ExecutorService readers) {
         this.host = host;
+        this.port = port;
+        this.frameDelay = frameDelay;
+        this.readers = readers;
     }
 
     /**
-     * Open Connection to Samsung TV.
+     * Open Connection to Samsung TV. The instance is shared by several bridges,
+     * so this is only called with {@link #lock} held.
      *
+     * @param readReplies true to read what the controller answers, false if nothing will be sent
      * @throws RemoteControllerException
      */
-    public void openConnection() throws RemoteControllerException {
-        logger.debug("Open connection to qsync host '{}:{}'", host, TCP_PORT);
+    private void openConnection(boolean readReplies) throws RemoteControllerException {
+        logger.debug("Open connection to qsync host '{}:{}'", host, port);
+
+        // Never drop a previous socket without closing it
+        abortConnection();
 
         socket = new Socket();
         try {
-            socket.connect(new InetSocketAddress(host, TCP_PORT), CONNECTION_TIMEOUT);
+            socket.connect(new InetSocketAddress(host, port), CONNECTION_TIMEOUT);
         } catch (Exception e) {
+            abortConnection();
             throw new RemoteControllerException("Connection failed", e);
         }
 
         try {
             os = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
 
-        } catch (IOException e) {
+            if (readReplies) {
+                ReplyFrameDecoder decoder = new ReplyFrameDecoder(this::onReplyFrame);
+                readers.execute(new ReplyReader(socket.getInputStream(), decoder));
+            }
+        } catch (IOException | RejectedExecutionException e) {
+            abortConnection();
             throw new RemoteControllerException(e);
         }
 
@@ -90,82 +133,200 @@ public class RemoteController {
      * @throws RemoteControllerException
      */
     public void closeConnection() throws RemoteControllerException {
+        // Never close the socket under a command sequence in progress
+        lock.lock();
         try {
+            Socket socket = this.socket;
+            if (socket == null) {
+                return;
+            }
+
+            this.socket = null;
+            this.os = null;
             socket.close();
         } catch (IOException e) {
             throw new RemoteControllerException(e);
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void sendCommand(ShadeCommand command) throws RemoteControllerException {
-        sendCommandBytes(command.getCommandBytes());
+    /**
+     * Close the connection, if any, when already handling another failure.
+     */
+    private void abortConnection() {
+        try {
+            closeConnection();
+        } catch (RemoteControllerException e) {
+            logger.debug("Could not close connection", e);
+        }
     }
 
     /**
-     * Send byte command to Qsync Controller.
+     * Check that the QsyncController is reachable by opening a connection and
+     * closing it again without sending any frame. Connections only live for the
+     * duration of a command sequence, so there is never an open one to reuse.
      *
-     * @param command to send
-     * @throws RemoteControllerException
+     * @throws RemoteControllerException if the controller cannot be reached
      */
-    private void sendCommandBytes(byte[] command) throws RemoteControllerException {
-        logger.debug("Try to send command: {}", command);
-
-        if (!isConnected()) {
-            openConnection();
-        }
-
+    public void probe() throws RemoteControllerException {
+        lock.lock();
         try {
-            os.write(command);
-            os.flush();
-        } catch (IOException e) {
-            logger.debug("Couldn't send command", e);
+            // Nothing is sent, so there is nothing to read either
+            openConnection(false);
             closeConnection();
-            throw new RemoteControllerException("Exception in writing to socket", e);
+        } finally {
+            lock.unlock();
         }
-
-        logger.debug("Command successfully sent");
     }
 
     /**
-     * Send sequence of commands to Qsync Controller
+     * Send a command to the QsyncController, optionally waiting until the
+     * controller acknowledges it.
      *
-     * @param keys List of commands to send.
+     * @param command      to send
+     * @param ackTimeoutMs how long to wait for the acknowledgement, 0 to not wait at all
+     * @return true if the controller acknowledged the command
      * @throws RemoteControllerException
      */
-    private void sendCommandBytes(List<byte[]> commands) throws RemoteControllerException {
-        sendCommandBytes(commands, 300);
+    public boolean sendCommand(ShadeCommand command, int ackTimeoutMs) throws RemoteControllerException {
+        return sendCommands(Collections.singletonList(command), ackTimeoutMs, false) == 1;
     }
 
     /**
-     * Send sequence of commands to Qsync Controller
+     * Send several commands to the QsyncController over a single connection.
+     * Every command is sent with its own header frames, as when it is sent
+     * alone, unless pipelining is asked for: then the header frames are only
+     * sent once, followed by the frame of each command. Acknowledgements are
+     * awaited after the last frame, so the time spent holding the controller
+     * does not grow by the timeout per command.
      *
-     * @param keys      List of commands to send.
-     * @param sleepInMs Sleep between key code sending in milliseconds.
-     * @throws RemoteControllerException
+     * @param commands     to send, in order
+     * @param ackTimeoutMs how long to wait for each acknowledgement, 0 to not wait at all
+     * @param pipelined    true to send the header frames only once
+     * @return number of commands the controller acknowledged
+     * @throws RemoteControllerException if sending fails or the thread is interrupted before all commands were sent
+     *             and acknowledged
      */
-    private void sendCommandBytes(List<byte[]> commands, int sleepInMs) throws RemoteControllerException {
-        // The qsync controller cannot handle multiple threads, all commands should
-        // complete independently
-        synchronized (lock) {
-            Iterator<byte[]> iterator = commands.iterator();
-            while (iterator.hasNext()) {
-                sendCommandBytes(iterator.next());
-
-                // Only sleep if there's another command to send
-                if (iterator.hasNext()) {
-                    try {
-                        Thread.sleep(sleepInMs);
-                    } catch (InterruptedException e) {
-                        // We're not doing anything mission critical, allow thread shutdown
-                        return;
+    public int sendCommands(List<ShadeCommand> commands, int ackTimeoutMs, boolean pipelined)
+            throws RemoteControllerException {
+        List<PendingAck> acks = new ArrayList<>();
+        lock.lock();
+        try {
+            // Frames follow each other without waiting for acknowledgements, which are collected at the end
+            int frames = 0;
+            for (ShadeCommand command : commands) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new RemoteControllerException("Interrupted before sending " + command);
+                }
+
+                if (!pipelined || frames == 0) {
+                    for (byte[] header : command.getHeaderBytes()) {
+                        if (frames++ > 0) {
+                            pause(frameDelay);
+                        }
+                        sendCommandBytes(header);
                     }
                 }
+                pause(frameDelay);
+                frames++;
+
+                byte[] commandFrame = command.getCommandFrame();
+                if (ackTimeoutMs > 0) {
+                    // Only replies arriving after the command frame was written can acknowledge it
+                    PendingAck ack = new PendingAck(command, commandFrame);
+                    acks.add(ack);
+                    pendingAcks.add(ack);
+                    ack.sent();
+                }
+                sendCommandBytes(commandFrame);
             }
 
-            closeConnection();
+            return awaitAcks(acks, ackTimeoutMs);
+        } finally {
+            pendingAcks.removeAll(acks);
+            abortConnection();
+            lock.unlock();
         }
+    }
 
-        logger.debug("Command(s) successfully sent");
+    /**
+     * @return round trip time of the last acknowledged command in milliseconds, -1 if none was acknowledged yet
+     */
+    public long getLastAckRoundTripMs() {
+        return lastAckRoundTripMs;
+    }
+
+    /**
+     * Wait for the acknowledgement of each command, up to the timeout counted from when its frame was written.
+     *
+     * @return number of acknowledged commands
+     * @throws RemoteControllerException if the thread is interrupted while waiting
+     */
+    private int awaitAcks(List<PendingAck> acks, int ackTimeoutMs) throws RemoteControllerException {
+        int acknowledged = 0;
+        for (PendingAck ack : acks) {
+            try {
+                if (ack.isAcknowledged() || ack.await(Math.max(ackTimeoutMs - ack.getAgeMs(), 0))) {
+                    lastAckRoundTripMs = ack.getRoundTripMs();
+                    logger.debug("Command for group {} acknowledged after {} ms", ack.getCommand().getGroupId(),
+                            lastAckRoundTripMs);
+                    acknowledged++;
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteControllerException("Interrupted while waiting for acknowledgements");
+            }
+            logger.debug("Command for group {} was not acknowledged within {} ms", ack.getCommand().getGroupId(),
+                    ackTimeoutMs);
+        }
+        return acknowledged;
+    }
+
+    private void onReplyFrame(byte[] payload, int length) {
+        for (PendingAck ack : pendingAcks) {
+            if (!ack.isAcknowledged() && ack.matches(payload, length) && ack.acknowledge()) {
+                return;
+            }
+        }
+        logger.trace("Ignoring reply frame of length {}", length);
+    }
+
+    private void pause(int ms) throws RemoteControllerException {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            // Allow thread shutdown, but the command is incomplete and must not look sent.
+            // The caller closes the connection.
+            Thread.currentThread().interrupt();
+            throw new RemoteControllerException("Interrupted while sending command", e);
+        }
+    }
+
+    /**
+     * Send byte command to Qsync Controller.
+     *
+     * @param command to send
+     * @throws RemoteControllerException
+     */
+    private void sendCommandBytes(byte[] command) throws RemoteControllerException {
+        logger.debug("Try to send command: {}", command);
+
+        if (!isConnected()) {
+            openConnection(true);
+        }
+
+        try {
+            os.write(command);
+            os.flush();
+        } catch (IOException e) {
+            logger.debug("Couldn't send command", e);
+            abortConnection();
+            throw new RemoteControllerException("Exception in writing to socket", e);
+        }
+
+        logger.debug("Command successfully sent");
     }
 
     private boolean isConnected() {
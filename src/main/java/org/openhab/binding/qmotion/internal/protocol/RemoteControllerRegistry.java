@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.smarthome.core.common.NamedThreadFactory;
+import org.openhab.binding.qmotion.internal.QmotionBindingConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link RemoteControllerRegistry} hands out one shared
+ * {@link RemoteController} per physical QsyncController. Several bridge things
+ * may be configured with the same controller, possibly under different host
+ * names; they all get the same instance, so their commands are serialized on
+ * one connection instead of competing for the controller.
+ *
+ * Instances are reference counted, every {@link #acquire(String, int)} must be
+ * matched by a {@link #release(RemoteController)}.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class RemoteControllerRegistry {
+
+    public static final int DEFAULT_PORT = RemoteController.TCP_PORT;
+
+    private final Logger logger = LoggerFactory.getLogger(RemoteControllerRegistry.class);
+
+    private final Map<String, SharedController> controllers = new HashMap<>();
+
+    // Every controller has at most one connection open, so this runs at most one
+    // reader per controller. Idle readers are reused for the next connection.
+    private final ExecutorService readers = Executors
+            .newCachedThreadPool(new NamedThreadFactory(QmotionBindingConstants.BINDING_ID + "-reader", true));
+
+    private static class SharedController {
+        private final RemoteController controller;
+        private int references;
+
+        SharedController(RemoteController controller) {
+            this.controller = controller;
+        }
+    }
+
+    private final int frameDelay;
+
+    public RemoteControllerRegistry() {
+        this(RemoteController.FRAME_DELAY);
+    }
+
+    /**
+     * @param frameDelay pause between two frames in milliseconds, only stand-ins for a real controller do with less
+     */
+    public RemoteControllerRegistry(int frameDelay) {
+        this.frameDelay = frameDelay;
+    }
+
+    /**
+     * Get the controller for a host, creating it if no other handler uses it yet.
+     * This resolves the host name and may block, do not call it from initialize.
+     *
+     * @param host IP address (or host name) of Qsync controller.
+     * @param port TCP port of the Qsync controller.
+     * @return the controller shared by all users of the same address
+     * @throws RemoteControllerException if the host name cannot be resolved, nothing is acquired then
+     */
+    public RemoteController acquire(String host, int port) throws RemoteControllerException {
+        String key = resolve(host) + ":" + port;
+
+        synchronized (controllers) {
+            SharedController shared = controllers.get(key);
+            if (shared == null) {
+                shared = new SharedController(new RemoteController(host, port, frameDelay, readers));
+                controllers.put(key, shared);
+            }
+            shared.references++;
+            logger.debug("Qsync controller {} now used by {} bridge(s)", key, shared.references);
+            return shared.controller;
+        }
+    }
+
+    /**
+     * Give back a controller obtained from {@link #acquire(String, int)}. The last
+     * release closes its connection, if any, once a command sequence in progress
+     * on it has finished.
+     *
+     * @param controller to release
+     */
+    public void release(RemoteController controller) {
+        synchronized (controllers) {
+            boolean lastReference = false;
+            for (Map.Entry<String, SharedController> entry : controllers.entrySet()) {
+                SharedController shared = entry.getValue();
+                if (shared.controller == controller) {
+                    if (--shared.references == 0) {
+                        controllers.remove(entry.getKey());
+                        lastReference = true;
+                    }
+                    break;
+                }
+            }
+            if (!lastReference) {
+                return;
+            }
+        }
+
+        // Outside of the registry lock, closing waits for a command sequence in progress
+        try {
+            controller.closeConnection();
+        } catch (RemoteControllerException e) {
+            logger.debug("Could not close connection", e);
+        }
+    }
+
+    private String resolve(String host) throws RemoteControllerException {
+        try {
+            return InetAddress.getByName(host).getHostAddress();
+        } catch (UnknownHostException e) {
+            // Keying on the name instead could give the same controller a second instance once it resolves
+            throw new RemoteControllerException("Cannot resolve Qsync controller address [" + host + "]", e);
+        }
+    }
+
+    public void dispose() {
+        readers.shutdownNow();
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+/**
+ * The {@link ReplyFrameDecoder} decodes the frames the QsyncController sends
+ * back over its socket. Replies use the same framing as requests: a 0x1b marker,
+ * one byte payload length and the payload itself. Any bytes outside of a frame
+ * are skipped.
+ *
+ * The decoder is fed incrementally with whatever a read returned and reuses a
+ * single payload buffer, so listeners must copy anything they want to keep.
+ *
+ * @see <a
+ *      href="https://github.com/devbobo/qmotion/blob/master/Protocol.md">
+ *      https://github.com/devbobo/qmotion/blob/master/Protocol.md</a>
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class ReplyFrameDecoder {
+
+    private static final byte FRAME_MARKER = 0x1b;
+
+    /**
+     * Receives each complete frame.
+     */
+    public interface FrameListener {
+        /**
+         * @param payload buffer holding the frame payload, only valid during the call
+         * @param length  number of payload bytes in the buffer
+         */
+        void onFrame(byte[] payload, int length);
+    }
+
+    private enum State {
+        MARKER,
+        LENGTH,
+        PAYLOAD
+    }
+
+    private final FrameListener listener;
+    private final byte[] payload = new byte[255];
+
+    private State state = State.MARKER;
+    private int expected;
+    private int received;
+
+    public ReplyFrameDecoder(FrameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Feed received bytes to the decoder, calling the listener for every frame completed by them.
+     *
+     * @param buffer bytes read from the controller
+     * @param offset start of the new bytes in the buffer
+     * @param length number of new bytes
+     */
+    public void decode(byte[] buffer, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = buffer[i];
+            switch (state) {
+                case MARKER:
+                    if (b == FRAME_MARKER) {
+                        state = State.LENGTH;
+                    }
+                    break;
+                case LENGTH:
+                    expected = b & 0xff;
+                    received = 0;
+                    if (expected == 0) {
+                        completeFrame();
+                    } else {
+                        state = State.PAYLOAD;
+                    }
+                    break;
+                case PAYLOAD:
+                    payload[received++] = b;
+                    if (received == expected) {
+                        completeFrame();
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Drop any partially decoded frame.
+     */
+    public void reset() {
+        state = State.MARKER;
+        expected = 0;
+        received = 0;
+    }
+
+    private void completeFrame() {
+        state = State.MARKER;
+        listener.onFrame(payload, received);
+    }
+}
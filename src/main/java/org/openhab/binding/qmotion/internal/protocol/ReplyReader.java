@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2010-2019 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.qmotion.internal.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link ReplyReader} drains the input side of a connection to the
+ * QsyncController and passes everything it reads to a {@link ReplyFrameDecoder}.
+ * It runs until the connection is closed.
+ *
+ * @author Tim Moran - Initial contribution
+ */
+public class ReplyReader implements Runnable {
+
+    private final Logger logger = LoggerFactory.getLogger(ReplyReader.class);
+
+    private final InputStream is;
+    private final ReplyFrameDecoder decoder;
+    private final byte[] buffer = new byte[256];
+
+    public ReplyReader(InputStream is, ReplyFrameDecoder decoder) {
+        this.is = is;
+        this.decoder = decoder;
+    }
+
+    @Override
+    public void run() {
+        try {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                decoder.decode(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // Expected when the connection gets closed while waiting for data
+            logger.trace("Stopped reading from qsync connection", e);
+        }
+        logger.debug("Reader for qsync connection finished");
+    }
+}
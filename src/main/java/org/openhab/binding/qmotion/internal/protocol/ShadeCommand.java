@@ -36,6 +36,14 @@ public class ShadeCommand {
         this.position = position;
     }
 
+    public int getGroupId() {
+        return groupId;
+    }
+
+    public ShadePosition getPosition() {
+        return position;
+    }
+
     private byte[] getActualCommand() {
         byte[] sendCommand = COMMAND.clone();
         sendCommand[5] = (byte) groupId;
@@ -43,14 +51,23 @@ public class ShadeCommand {
         return sendCommand;
     }
 
-    public List<byte[]> getCommandBytes() {
-        List<byte[]> commands = new ArrayList<byte[]>();
+    /**
+     * @return the frames starting a session with the controller
+     */
+    public List<byte[]> getHeaderBytes() {
+        List<byte[]> headers = new ArrayList<byte[]>();
+
+        headers.add(HEADER_1);
+        headers.add(HEADER_2);
 
-        commands.add(HEADER_1);
-        commands.add(HEADER_2);
-        commands.add(getActualCommand());
+        return headers;
+    }
 
-        return commands;
+    /**
+     * @return the frame setting the position of the group
+     */
+    public byte[] getCommandFrame() {
+        return getActualCommand();
     }
 
     @Override